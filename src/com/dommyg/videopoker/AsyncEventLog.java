@@ -0,0 +1,121 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class logs game events without making the game wait on I/O.
+ * Games put events into a fixed ring buffer, which never blocks: if the buffer is full, the event is dropped and counted.
+ * A background thread takes the events out in order and writes them to an EventOutput.
+ */
+
+final class AsyncEventLog implements AutoCloseable {
+
+    // How long the writer thread sleeps when there is nothing to write.
+    static final private long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int capacity;
+    private final int slotMask;
+    // The event in each slot of the ring, kept in separate arrays so no object is made per event.
+    private final long[] sources;
+    private final int[] types;
+    private final long[] values;
+    // Each slot holds the sequence number of its event plus one once the event is fully written, which tells the writer thread it can be read.
+    private final AtomicLongArray published;
+    // The next sequence number to be given to an event.
+    private final AtomicLong claimed = new AtomicLong();
+    // The next sequence number the writer thread will read. Slots before it are free to reuse.
+    private volatile long consumed;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final EventOutput output;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // The capacity is rounded up to a power of two.
+    AsyncEventLog(EventOutput output, int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slotMask = this.capacity - 1;
+        this.sources = new long[this.capacity];
+        this.types = new int[this.capacity];
+        this.values = new long[this.capacity];
+        this.published = new AtomicLongArray(this.capacity);
+        this.output = output;
+        this.writer = new Thread(this::writeEvents, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Returns a sink that records events under the given source, such as a machine or session number.
+    GameEventSink sink(long source) {
+        return (type, value) -> offer(source, type, value);
+    }
+
+    // Adds an event to the ring, returning false and counting it as dropped if the ring is full.
+    boolean offer(long source, int type, long value) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & slotMask;
+        sources[slot] = source;
+        types[slot] = type;
+        values[slot] = value;
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    // Stops the writer thread after it writes every event already in the ring, then closes the output.
+    // An interrupt does not cut the wait short, since the output must not be closed under the writer; the interrupt is kept for the caller.
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        output.close();
+    }
+
+    private void writeEvents() {
+        long next = consumed;
+        try {
+            while (true) {
+                int slot = (int) next & slotMask;
+                if (published.get(slot) == next + 1) {
+                    output.write(sources[slot], types[slot], values[slot]);
+                    next++;
+                    consumed = next;
+                } else if (running || claimed.get() != next) {
+                    output.flush();
+                    LockSupport.parkNanos(IDLE_NANOS);
+                } else {
+                    break;
+                }
+            }
+            output.flush();
+        } catch (IOException e) {
+            System.out.println("ERROR: Could not write the event log. " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.dommyg.videopoker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the totals of an audit. Each worker fills its own result, and the results are merged at the end.
+ * Only the first few mismatches are described, so an audit of a badly damaged journal does not run out of memory.
+ */
+
+class AuditResult {
+
+    // The most mismatches that are described in the report; the rest are only counted.
+    static final private int MAX_DESCRIBED = 100;
+
+    private long gamesChecked;
+    private long mismatches;
+    private final List<String> described = new ArrayList<>();
+    // Games missing some of their records, such as a hand interrupted by a crash before its payout. They cannot be dealt again in full.
+    private long unfinished;
+    // Games recorded without a seed, by a version that did not record one. They cannot be dealt again at all.
+    private long unseeded;
+    private long wageredCents;
+    private long paidCents;
+    private long elapsedNanos;
+
+    // Records a game that was dealt again and matched its records.
+    void recordMatch(long wagerCents, long payoutCents) {
+        gamesChecked++;
+        wageredCents += wagerCents;
+        paidCents += payoutCents;
+    }
+
+    // Records a game that was dealt again and did not match its records.
+    void recordMismatch(long wagerCents, long payoutCents, String description) {
+        recordMatch(wagerCents, payoutCents);
+        mismatches++;
+        if (described.size() < MAX_DESCRIBED) {
+            described.add(description);
+        }
+    }
+
+    void addUnfinished(long games) {
+        unfinished += games;
+    }
+
+    void addUnseeded(long games) {
+        unseeded += games;
+    }
+
+    // Adds another worker's totals into this result.
+    void merge(AuditResult other) {
+        gamesChecked += other.gamesChecked;
+        mismatches += other.mismatches;
+        for (String description : other.described) {
+            if (described.size() < MAX_DESCRIBED) {
+                described.add(description);
+            }
+        }
+        unfinished += other.unfinished;
+        unseeded += other.unseeded;
+        wageredCents += other.wageredCents;
+        paidCents += other.paidCents;
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long getGamesChecked() {
+        return gamesChecked;
+    }
+
+    long getMismatches() {
+        return mismatches;
+    }
+
+    List<String> getMismatchDescriptions() {
+        return described;
+    }
+
+    long getUnfinished() {
+        return unfinished;
+    }
+
+    long getUnseeded() {
+        return unseeded;
+    }
+
+    long getWageredCents() {
+        return wageredCents;
+    }
+
+    long getPaidCents() {
+        return paidCents;
+    }
+
+    double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : gamesChecked * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Games checked: %,d in %.2f s (%,.0f games/sec)%n", gamesChecked, elapsedNanos / 1e9, getGamesPerSecond()));
+        report.append(String.format("Mismatches: %,d%n", mismatches));
+        report.append(String.format("Unfinished games: %,d%n", unfinished));
+        report.append(String.format("Games without a seed: %,d%n", unseeded));
+        report.append(String.format("Wagered: %,.2f  Paid: %,.2f%n", wageredCents / 100.0, paidCents / 100.0));
+        for (String description : described) {
+            report.append(description).append(System.lineSeparator());
+        }
+        if (mismatches > described.size()) {
+            report.append(String.format("... and %,d more%n", mismatches - described.size()));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package com.dommyg.videopoker;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class plays games on its own thread, with a HoldStrategy choosing the holds, for autoplay and for soak testing terminals.
+ * The game thread never touches the UI. After a game it publishes a Frame with the cards, outcome, win, bankroll, and session statistics, if the UI has taken
+ * the last frame, and it always publishes the last game. The UI takes the newest frame once per frame it draws, so it stays live at any number of games per second
+ * and never falls behind, and the game thread makes no frames the UI would never show.
+ */
+
+final class Autoplay {
+
+    private final Deck deck;
+    private final Machine machine;
+    private final Bank bank;
+    private final HoldStrategy strategy;
+    // Autoplay stops after this many games, or once the bankroll is below stopBelowCents.
+    private final long games;
+    private final long stopBelowCents;
+    private final Thread player;
+
+    // The newest game not yet taken by the UI, or null.
+    private final AtomicReference<Frame> latest = new AtomicReference<>();
+    private volatile long gamesPlayed;
+    private volatile boolean stopRequested;
+    private volatile boolean finished;
+
+    Autoplay(Deck deck, Machine machine, Bank bank, HoldStrategy strategy, long games, long stopBelowCents) {
+        this.deck = deck;
+        this.machine = machine;
+        this.bank = bank;
+        this.strategy = strategy;
+        this.games = games;
+        this.stopBelowCents = stopBelowCents;
+        this.player = new Thread(this::play, "autoplay");
+        player.setDaemon(true);
+    }
+
+    // Starts playing. The Deck, Machine, and Bank belong to the game thread until isFinished returns true.
+    void start() {
+        player.start();
+    }
+
+    // Asks the game thread to stop after the game it is playing.
+    void stop() {
+        stopRequested = true;
+    }
+
+    // Waits for the game thread to stop.
+    void join() throws InterruptedException {
+        player.join();
+    }
+
+    // Returns true once the game thread has stopped. Everything it did is then visible to the caller.
+    boolean isFinished() {
+        return finished;
+    }
+
+    long getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    // Returns the newest game finished since the last call, or null if there is none.
+    Frame takeFrame() {
+        return latest.getAndSet(null);
+    }
+
+    // Plays whole games in the same steps as the Controller's "DEAL" button, without showing them.
+    private void play() {
+        try {
+            long played = 0;
+            long cards = 0;
+            int status = 0;
+            boolean unpublished = false;
+            while (!stopRequested && played < games && bank.getBankrollCents() >= stopBelowCents) {
+                if (!machine.processWager()) {
+                    break;
+                }
+                machine.setWinAmountCents(0);
+                deck.firstCycle();
+                deck.hold(strategy.chooseHolds(deck));
+                machine.drawHands();
+                cards = deck.getPackedHand();
+                status = deck.getHandStatus();
+                deck.finalCycle();
+                machine.determinePayout();
+                played++;
+                gamesPlayed = played;
+                unpublished = latest.get() != null;
+                if (!unpublished) {
+                    publish(played, cards, status);
+                }
+            }
+            if (unpublished) {
+                publish(played, cards, status);
+            }
+        } finally {
+            finished = true;
+        }
+    }
+
+    private void publish(long played, long cards, int status) {
+        latest.set(new Frame(played, cards, status, machine.getWinAmountCents(), bank.getBankrollCents(), machine.getSessionStats().copy()));
+    }
+
+    /**
+     * This class is what the UI shows of one autoplayed game.
+     */
+    static final class Frame {
+
+        private final long gamesPlayed;
+        // The five cards after the draw, as a PackedHand.
+        private final long cards;
+        private final int handStatus;
+        private final long winAmountCents;
+        private final long bankrollCents;
+        // A copy of the machine's statistics, which the game thread does not change.
+        private final SessionStats sessionStats;
+
+        Frame(long gamesPlayed, long cards, int handStatus, long winAmountCents, long bankrollCents, SessionStats sessionStats) {
+            this.gamesPlayed = gamesPlayed;
+            this.cards = cards;
+            this.handStatus = handStatus;
+            this.winAmountCents = winAmountCents;
+            this.bankrollCents = bankrollCents;
+            this.sessionStats = sessionStats;
+        }
+
+        long getGamesPlayed() {
+            return gamesPlayed;
+        }
+
+        long getCards() {
+            return cards;
+        }
+
+        int getHandStatus() {
+            return handStatus;
+        }
+
+        long getWinAmountCents() {
+            return winAmountCents;
+        }
+
+        long getBankrollCents() {
+            return bankrollCents;
+        }
+
+        SessionStats getSessionStats() {
+            return sessionStats;
+        }
+    }
+}
@@ -1,26 +1,105 @@
 package com.dommyg.videopoker;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class holds the player's money.
+ * The bankroll is kept as a whole number of cents so that wagers and payouts are exact and never create objects; a BigDecimal is only made for display.
+ * Wagers and payouts are atomic without locking, so any number of threads can play against the same bank without losing updates.
+ * A bank can also hand part of its money to sub-ledgers, such as one per session, which play on their own balance and roll up into the total.
+ * Once a sub-ledger is closed it takes no more wagers, and any payout that still reaches it goes to its parent, so no money is stranded.
  */
 
 class Bank {
 
-    private BigDecimal bankroll;
+    // The balance of a closed sub-ledger. It is below every wager, so a debit is refused without checking for it.
+    static final private long CLOSED = Long.MIN_VALUE;
+
+    // The balance in cents, or CLOSED once this sub-ledger has been closed.
+    private final AtomicLong bankrollCents;
+    // The bank this sub-ledger was opened from, or null for a bank that is not a sub-ledger.
+    private final Bank parent;
+    // The sub-ledgers opened from this bank that have not been closed yet.
+    private final Queue<Bank> subLedgers = new ConcurrentLinkedQueue<>();
 
     Bank() {
-        this.bankroll = BigDecimal.valueOf(200.00);
+        this(200_00);
+    }
+
+    Bank(long bankrollCents) {
+        this(bankrollCents, null);
+    }
+
+    private Bank(long bankrollCents, Bank parent) {
+        this.bankrollCents = new AtomicLong(bankrollCents);
+        this.parent = parent;
     }
 
+    // Returns the bankroll in dollars, for displaying on the UI.
     BigDecimal getBankroll() {
-        return bankroll.setScale(2,RoundingMode.HALF_EVEN);
+        return BigDecimal.valueOf(getBankrollCents(), 2);
     }
 
-    void setBankroll(BigDecimal bankroll) {
-        this.bankroll = bankroll;
+    // Returns this bank's own balance, not counting its sub-ledgers. A closed sub-ledger has nothing.
+    long getBankrollCents() {
+        long balance = bankrollCents.get();
+        return balance == CLOSED ? 0 : balance;
+    }
+
+    // Takes a wager out of the bankroll. Returns false and takes nothing if the bankroll does not cover it or this sub-ledger is closed.
+    boolean debit(long cents) {
+        long balance;
+        do {
+            balance = bankrollCents.get();
+            if (balance < cents) {
+                return false;
+            }
+        } while (!bankrollCents.compareAndSet(balance, balance - cents));
+        return true;
     }
-}
 
+    // Adds a payout to the bankroll, or to the parent's if this sub-ledger is closed.
+    void credit(long cents) {
+        long balance;
+        do {
+            balance = bankrollCents.get();
+            if (balance == CLOSED) {
+                parent.credit(cents);
+                return;
+            }
+        } while (!bankrollCents.compareAndSet(balance, balance + cents));
+    }
+
+    // Moves money from this bank into a new sub-ledger. Returns null if this bank does not have that much.
+    Bank openSubLedger(long cents) {
+        if (!debit(cents)) {
+            return null;
+        }
+        Bank subLedger = new Bank(cents, this);
+        subLedgers.add(subLedger);
+        return subLedger;
+    }
+
+    // Closes a sub-ledger and moves everything left in it, including its own sub-ledgers, back into this bank.
+    void closeSubLedger(Bank subLedger) {
+        if (subLedgers.remove(subLedger)) {
+            for (Bank nested : subLedger.subLedgers) {
+                subLedger.closeSubLedger(nested);
+            }
+            credit(subLedger.bankrollCents.getAndSet(CLOSED));
+        }
+    }
+
+    // Returns this bank's balance plus the balances of all its open sub-ledgers.
+    // While games are being played the total is a moment-by-moment sum, since each balance is read separately.
+    long getTotalCents() {
+        long total = getBankrollCents();
+        for (Bank subLedger : subLedgers) {
+            total += subLedger.getTotalCents();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,213 @@
+package com.dommyg.videopoker;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+/**
+ * This class times the deal, evaluate, reset, and payout paths so changes to them can be compared against a saved baseline.
+ * Each benchmark is warmed up first, then measured for several rounds, and reports operations per second and bytes allocated per operation.
+ * Results of a run are printed as a table; the baseline is kept in benchmarks/baseline.txt.
+ */
+
+final class Benchmarks {
+
+    static final private int WARMUP_ROUNDS = 5;
+    static final private int MEASURED_ROUNDS = 5;
+    static final private long ROUND_NANOS = 1_000_000_000L;
+    // The number of prepared hands in each mix. It is a power of two so an iteration can pick a hand with a mask.
+    static final private int MIX_SIZE = 1 << 12;
+    // The number of hands in each call to the batch evaluator. MIX_SIZE is a multiple of it.
+    static final private int BATCH_SIZE = 64;
+
+    // Keeps the JIT from removing benchmarked work whose result is otherwise unused.
+    private static long sink;
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) {
+        List<String> results = new ArrayList<>();
+        Random random = new Random(42);
+
+        // Hand mixes. The dealt mix is hands as they come off the deck; the others match the paths of the old checkPair, checkStraight, checkFlush,
+        // and checkRoyalFlush functions so each kind of hand is timed on its own.
+        int[][] dealt = handMix(random, status -> true);
+        int[][] paired = handMix(random, status -> status == Deck.JACKS_OR_BETTER || status == Deck.TWO_PAIR || status == Deck.THREE_OF_A_KIND
+                || status == Deck.FULL_HOUSE || status == Deck.FOUR_OF_A_KIND);
+        int[][] straights = handMix(random, status -> status == Deck.STRAIGHT);
+        int[][] flushes = handMix(random, status -> status == Deck.FLUSH);
+        int[][] royals = royalMix(random);
+
+        results.add(measure("evaluate (dealt mix)", i -> evaluate(dealt[i & (MIX_SIZE - 1)])));
+        results.add(measure("evaluate (pairs and sets)", i -> evaluate(paired[i & (MIX_SIZE - 1)])));
+        results.add(measure("evaluate (straights)", i -> evaluate(straights[i & (MIX_SIZE - 1)])));
+        results.add(measure("evaluate (flushes)", i -> evaluate(flushes[i & (MIX_SIZE - 1)])));
+        results.add(measure("evaluate (royal flushes)", i -> evaluate(royals[i & (MIX_SIZE - 1)])));
+
+        // The batch evaluator is timed per hand over batches of BATCH_SIZE, so its ns/op compares with the single hand evaluate above.
+        long[] packedDealt = new long[MIX_SIZE];
+        for (int i = 0; i < MIX_SIZE; i++) {
+            packedDealt[i] = PackedHand.pack(dealt[i]);
+        }
+        int[] batchStatuses = new int[MIX_SIZE];
+        results.add(measure("batch evaluate (dealt mix)", BATCH_SIZE, i -> {
+            int from = (i * BATCH_SIZE) & (MIX_SIZE - 1);
+            HandEvaluator.evaluate(packedDealt, from, from + BATCH_SIZE, batchStatuses);
+            return batchStatuses[from];
+        }));
+
+        Deck dealDeck = new Deck();
+        results.add(measure("deal five and reset", i -> {
+            dealDeck.firstCycle();
+            dealDeck.finalCycle();
+            return dealDeck.getHandCard(0);
+        }));
+
+        Deck drawDeck = new Deck();
+        results.add(measure("deal, hold, draw and reset", i -> {
+            drawDeck.firstCycle();
+            drawDeck.hold(i & 0b11111);
+            drawDeck.secondCycle();
+            drawDeck.finalCycle();
+            return drawDeck.getHandStatus();
+        }));
+
+        Deck multiDeck = new Deck();
+        Machine multiMachine = new Machine(multiDeck, new Bank(Long.MAX_VALUE / 2));
+        multiMachine.setHands(MultiHand.MAX_HANDS);
+        results.add(measure("hundred play draw and payout", i -> {
+            multiDeck.firstCycle();
+            multiDeck.hold(i & 0b11111);
+            multiMachine.drawHands();
+            multiDeck.finalCycle();
+            multiMachine.determinePayout();
+            return multiMachine.getWinCredits();
+        }));
+
+        Deck payoutDeck = new Deck();
+        Machine machine = new Machine(payoutDeck, new Bank(Long.MAX_VALUE / 2));
+        machine.setBet(5);
+        results.add(measure("processWager", i -> {
+            machine.processWager();
+            return machine.getBet();
+        }));
+        results.add(measure("determinePayout", i -> {
+            if ((i & (MIX_SIZE - 1)) == 0) {
+                // Dealing a new hand now and then so the payout is not always for the same status.
+                payoutDeck.finalCycle();
+                payoutDeck.firstCycle();
+            }
+            machine.determinePayout();
+            return machine.getWinCredits();
+        }));
+
+        System.out.printf("%-30s %16s %12s %12s%n", "Benchmark", "ops/sec", "ns/op", "bytes/op");
+        for (String result : results) {
+            System.out.println(result);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static long evaluate(int[] hand) {
+        return HandEvaluator.evaluate(hand[0], hand[1], hand[2], hand[3], hand[4]);
+    }
+
+    // Runs the operation through warmup and measured rounds and returns a line of the result table.
+    private static String measure(String name, IntToLongFunction operation) {
+        return measure(name, 1, operation);
+    }
+
+    // Measures an operation that does opsPerCall operations in each call, reporting per operation.
+    private static String measure(String name, int opsPerCall, IntToLongFunction operation) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(operation);
+        }
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long startBytes = allocatedBytes();
+            long[] measured = runRound(operation);
+            bytes += allocatedBytes() - startBytes;
+            operations += measured[0] * opsPerCall;
+            nanos += measured[1];
+        }
+        return String.format("%-30s %,16.0f %12.2f %12.2f", name, operations * 1e9 / nanos, (double) nanos / operations, (double) bytes / operations);
+    }
+
+    // Runs the operation in batches until the round time is used up, returning the operation count and elapsed time.
+    private static long[] runRound(IntToLongFunction operation) {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 10_000; i++) {
+                sink += operation.applyAsLong(i);
+            }
+            operations += 10_000;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        return new long[] {operations, elapsed};
+    }
+
+    // Returns the bytes allocated so far by the current thread.
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Deals random hands, keeping the ones whose status passes the filter.
+    private static int[][] handMix(Random random, IntPredicate filter) {
+        int[][] hands = new int[MIX_SIZE][];
+        int count = 0;
+        while (count < MIX_SIZE) {
+            int[] hand = randomHand(random);
+            if (filter.test((int) evaluate(hand))) {
+                hands[count++] = hand;
+            }
+        }
+        return hands;
+    }
+
+    // Royal flushes are too rare to deal at random, so they are built directly in a random suit and card order.
+    private static int[][] royalMix(Random random) {
+        int[][] hands = new int[MIX_SIZE][];
+        for (int i = 0; i < MIX_SIZE; i++) {
+            int suit = random.nextInt(HandEvaluator.SUITS);
+            int[] hand = new int[Deck.HAND_SIZE];
+            for (int x = 0; x < Deck.HAND_SIZE; x++) {
+                hand[x] = suit * HandEvaluator.VALUES + 8 + x;
+            }
+            for (int x = Deck.HAND_SIZE - 1; x > 0; x--) {
+                int swap = random.nextInt(x + 1);
+                int card = hand[x];
+                hand[x] = hand[swap];
+                hand[swap] = card;
+            }
+            hands[i] = hand;
+        }
+        return hands;
+    }
+
+    private static int[] randomHand(Random random) {
+        int[] hand = new int[Deck.HAND_SIZE];
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            int card;
+            boolean repeated;
+            do {
+                card = random.nextInt(HandEvaluator.SUITS * HandEvaluator.VALUES);
+                repeated = false;
+                for (int x = 0; x < i; x++) {
+                    repeated |= hand[x] == card;
+                }
+            } while (repeated);
+            hand[i] = card;
+        }
+        return hand;
+    }
+}
@@ -1,93 +1,72 @@
 package com.dommyg.videopoker;
 
 /**
- * This class holds information to create playing cards.
+ * This class holds information to display playing cards.
+ * During gameplay a card is passed around as its index (0-51), which is the suit (Hearts, Diamonds, Spades, Clubs) times 13 plus the value (Two is 0, Ace is 12).
+ * The 52 Card objects are shared and only looked up when a card needs to be shown to the player.
  */
 public class Card {
-    //TODO: Since suit and value belong to a limited set of values, use an Enumeration.
-    private String suit;
-    private String value;
-    private transient int numberValue;
-
-    /**
-     * Main constructor that contains two Strings (suits and values) and a translated int based off the value String.
-     */
-    public Card(String suit, String value) {
-        this.suit = suit;
-        this.value = value;
-        this.numberValue = calculateValue();
-    }
 
-    // Alternate constructor used during the Deck's checkPair function, which does not need a numberValue to perform its duties.
-    public Card(Card card) {
-        this.suit = card.suit;
-        this.value = card.value;
-    }
+    // Used in place of an index for a position in the hand that has no card.
+    static final int NO_CARD = -1;
 
-    String getSuit() {
-        return suit;
-    }
+    static final private String[] SUIT_NAMES = {"Hearts", "Diamonds", "Spades", "Clubs"};
+    static final private String[] VALUE_NAMES = {"Two", "Three", "Four", "Five", "Six", "Seven", "Eight", "Nine", "Ten",
+            "Jack", "Queen", "King", "Ace"};
 
-    String getValue() {
-        return value;
-    }
+    // The one shared Card for each index.
+    static final private Card[] CARDS = initializeCards();
 
-    int getNumberValue() {
-        return numberValue;
+    private static Card[] initializeCards() {
+        Card[] cards = new Card[HandEvaluator.SUITS * HandEvaluator.VALUES];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = new Card(i);
+        }
+        return cards;
     }
 
-    // Translates the Card's value, which is a String, into an int for use in various places during gameplay.
-    private int calculateValue() {
-        switch (this.value) {
-            //TODO Use constants instead of String literals.
-            case "Two":
-                return 2;
-
-            case "Three":
-                return 3;
-
-            case "Four":
-                return 4;
-
-            case "Five":
-                return 5;
-
-            case "Six":
-                return 6;
+    private final int index;
+    private final String displayName;
 
-            case "Seven":
-                return 7;
-
-            case "Eight":
-                return 8;
+    private Card(int index) {
+        this.index = index;
+        this.displayName = getValue() +" of " +getSuit();
+    }
 
-            case "Nine":
-                return 9;
+    // Returns the shared Card for an index.
+    static Card of(int index) {
+        return CARDS[index];
+    }
 
-            case "Ten":
-                return 10;
+    // Returns the suit (0-3) of a card index.
+    static int suitOf(int index) {
+        return index / HandEvaluator.VALUES;
+    }
 
-            case "Jack":
-                return 11;
+    // Returns the value (2-14, where an Ace is 14) of a card index.
+    static int numberValueOf(int index) {
+        return index % HandEvaluator.VALUES + 2;
+    }
 
-            case "Queen":
-                return 12;
+    String getSuit() {
+        return SUIT_NAMES[suitOf(index)];
+    }
 
-            case "King":
-                return 13;
+    String getValue() {
+        return VALUE_NAMES[index % HandEvaluator.VALUES];
+    }
 
-            case "Ace":
-                return 14;
+    int getNumberValue() {
+        return numberValueOf(index);
+    }
 
-                default:
-                    System.out.println("ERROR: Invalid value.");
-                    return 0;
-        }
+    int getIndex() {
+        return index;
     }
 
     @Override
     public String toString() {
-        return value +" of " +suit;
+        return displayName;
     }
 
 }
@@ -1,18 +1,41 @@
 package com.dommyg.videopoker;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ToggleButton;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-
 public class Controller {
 
     private Deck deck = new Deck();
     private Bank bank = new Bank();
     private Machine jacksOrBetter = new Machine(deck, bank);
+    // Writes the events of each game to the console on a background thread, so the UI never waits on console output.
+    private AsyncEventLog eventLog = new AsyncEventLog(EventOutput.console(), 1024);
+    // Works out hold advice in the background and hands it back on the JavaFX application thread.
+    private HoldAdvisor advisor = new HoldAdvisor(Platform::runLater);
+
+    // The look of a hold button the advice says to hold.
+    static final private String ADVISED_STYLE = "-fx-border-color: gold; -fx-border-width: 3;";
+
+    // The games in progress when autoplay is on, or null.
+    private Autoplay autoplay;
+    // How many games one press of the "AUTO" button plays.
+    private long autoplayGames = 100;
+    // Autoplay stops once the bankroll is below this many cents, set with the videopoker.autoplay.stopbelow property.
+    private final long autoplayStopBelowCents = Long.getLong("videopoker.autoplay.stopbelow", 0);
+    // Shows the newest autoplayed game each time JavaFX draws a frame, so the labels are set at most once per frame however fast the games are played.
+    private final AnimationTimer autoplayRenderer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            renderAutoplay();
+        }
+    };
 
     // Buttons for holding cards.
     @FXML
@@ -49,6 +72,26 @@ public class Controller {
     @FXML
     private Label winAmountDisplay;
 
+    // Turns advice mode on and off, and shows the expected value of the advised hold.
+    @FXML
+    private ToggleButton adviceToggle;
+    @FXML
+    private Label adviceDisplay;
+
+    // Turns autoplay on and off, chooses how many games it plays, and shows how many it has played.
+    @FXML
+    private ToggleButton autoplayToggle;
+    @FXML
+    private Button autoplayGamesButton;
+    @FXML
+    private Label autoplayDisplay;
+    @FXML
+    private Button dealButton;
+
+    // Shows the running statistics of the session.
+    @FXML
+    private Label statsDisplay;
+
     // Textual displays of the card.
     @FXML
     private Label card1;
@@ -64,27 +107,110 @@ public class Controller {
     // Tracks if the player is starting a new game, or mid-game (after holding cards and requesting new ones).
     private boolean newHand = true;
 
+    // Takes the controls of a MainWindow built in code, as the FXMLLoader would inject them from mainwindow.fxml, and sets their actions.
+    void attach(MainWindow window) {
+        handStatusDisplay = window.handStatusDisplay;
+        card1 = window.card1;
+        card2 = window.card2;
+        card3 = window.card3;
+        card4 = window.card4;
+        card5 = window.card5;
+        hold1 = window.hold1;
+        hold2 = window.hold2;
+        hold3 = window.hold3;
+        hold4 = window.hold4;
+        hold5 = window.hold5;
+        winAmountDisplay = window.winAmountDisplay;
+        betDisplay = window.betDisplay;
+        bankrollDisplay = window.bankrollDisplay;
+        changeDenominationButton = window.changeDenominationButton;
+        denominationDisplay = window.denominationDisplay;
+        changeBetButton = window.changeBetButton;
+        dealButton = window.dealButton;
+
+        hold1.setOnAction(event -> hold());
+        hold2.setOnAction(event -> hold());
+        hold3.setOnAction(event -> hold());
+        hold4.setOnAction(event -> hold());
+        hold5.setOnAction(event -> hold());
+        changeDenominationButton.setOnAction(event -> setDenominationDisplay());
+        changeBetButton.setOnAction(event -> setBetDisplay());
+        dealButton.setOnAction(event -> performCycle());
+        initialize();
+    }
+
+    // Takes the advice, autoplay, and statistics rows of a MainWindow once they have been built.
+    void attachExtras(MainWindow window) {
+        adviceToggle = window.adviceToggle;
+        adviceDisplay = window.adviceDisplay;
+        autoplayToggle = window.autoplayToggle;
+        autoplayGamesButton = window.autoplayGamesButton;
+        autoplayDisplay = window.autoplayDisplay;
+        statsDisplay = window.statsDisplay;
+
+        adviceToggle.setOnAction(event -> toggleAdvice());
+        autoplayToggle.setOnAction(event -> toggleAutoplay());
+        autoplayGamesButton.setOnAction(event -> setAutoplayGamesDisplay());
+    }
+
+    // Called when the application exits. Stops autoplay and advice, then closes the event log, which writes every event still waiting in it.
+    void shutdown() throws IOException {
+        if (autoplay != null) {
+            autoplay.stop();
+            try {
+                autoplay.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        advisor.close();
+        eventLog.close();
+    }
+
+    // Called by the FXMLLoader once the UI is loaded.
+    @FXML
+    private void initialize() {
+        jacksOrBetter.setEventSink(eventLog.sink(0));
+        jacksOrBetter.setMetrics(GameMetrics.global());
+        GameMetrics.registerInBackground();
+        // Plays the pay table chosen by the videopoker.paytable and videopoker.paytables properties, keeping the standard table if it cannot be read.
+        try {
+            jacksOrBetter.setPayTable(PayTable.configured());
+        } catch (IOException | IllegalArgumentException e) {
+            String standardName = jacksOrBetter.getPayTable().getName();
+            System.err.println("Could not read the pay table, playing " + standardName + " instead: " + e.getMessage());
+            handStatusDisplay.setText("PAY TABLE NOT READ, PLAYING " + standardName.toUpperCase());
+        }
+    }
+
     // The main game loop.
     // This function is activated when the player presses the "DEAL" button.
     // The newHand flag tracks if the player is starting a new game or mid-game (after holding cards and requesting new ones) and performs the appropriate cycle.
     @FXML
     private void performCycle() {
         if (newHand) {
+            // Remove the money bet by the player on the game.
+            // If the bankroll does not cover the bet, no game is started.
+            if (!jacksOrBetter.processWager()) {
+                handStatusDisplay.setText("INSUFFICIENT FUNDS");
+                return;
+            }
             // If there is a win amount displayed from a previous hand, it is not cleared from a machine until a new game is initiated with the "DEAL" button.
             // It stays on screen after the game is over in case a player leaves the machine, so that potential gamblers can see someone won at the machine, and how much they won.
             // Although that is not the context this application would be played, this is meant to be a faithful reproduction of those machines.
             resetWinAmountDisplay();
             // Toggle buttons so that they are set to game mode.
             handleToggles();
-            // Remove the money bet by the player on the game.
-            jacksOrBetter.processWager();
             // Perform the first cycle, update the displays on the UI, and change the newHand flag to indicate game-in-progress.
             deck.firstCycle();
             setBankrollDisplay();
             setCardsDisplay();
             setHandStatusDisplay();
             newHand = false;
+            requestAdvice();
         } else {
+            // Any advice still being worked out is for cards that are about to be replaced.
+            clearAdvice();
             // Process holds.
             deck.hold(card1Held, card2Held, card3Held, card4Held, card5Held);
             // Perform the second cycle and update the cards and hand status displays on the UI.
@@ -96,6 +222,7 @@ public class Controller {
             jacksOrBetter.determinePayout();
             setWinAmountDisplay();
             setBankrollDisplay();
+            setStatsDisplay(jacksOrBetter.getSessionStats());
             // Reset the hold buttons in preparation of the next game.
             removeHolds();
             // Toggle buttons so that they are set to out-of-game mode and change the newHand flag to indicate game over.
@@ -160,21 +287,21 @@ public class Controller {
     // Changes the textual value reported to the player on the UI and passes the value to the Machine to set the betDenomination variable.
     @FXML
     private void setDenominationDisplay() {
-        if (jacksOrBetter.getBetDenomination().equals(BigDecimal.valueOf(.25))) {
-            processChangeDenomination(.50);
+        if (jacksOrBetter.getBetDenominationCents() == 25) {
+            processChangeDenomination(50);
             denominationDisplay.setText("¢50");
-        } else if (jacksOrBetter.getBetDenomination().equals(BigDecimal.valueOf(.50))) {
-            processChangeDenomination(1.00);
+        } else if (jacksOrBetter.getBetDenominationCents() == 50) {
+            processChangeDenomination(100);
             denominationDisplay.setText("$1");
         } else {
-            processChangeDenomination(.25);
+            processChangeDenomination(25);
             denominationDisplay.setText("¢25");
         }
     }
 
-    // Sets the betDenomination variable in the Machine.
-    private void processChangeDenomination(double amount) {
-        jacksOrBetter.setBetDenomination(BigDecimal.valueOf(amount));
+    // Sets the betDenominationCents variable in the Machine.
+    private void processChangeDenomination(int cents) {
+        jacksOrBetter.setBetDenominationCents(cents);
     }
 
     // Sets the ability for the player to press "DENOM" button.
@@ -255,20 +382,151 @@ public class Controller {
     // Else, display the win amount on the UI.
     @FXML
     private void setWinAmountDisplay() {
-        if (jacksOrBetter.getWinAmount().equals(BigDecimal.valueOf(0))) {
+        if (jacksOrBetter.getWinAmountCents() == 0) {
             winAmountDisplay.setText("");
         } else {
-            winAmountDisplay.setText("WIN $" +jacksOrBetter.getWinAmount().setScale(2, RoundingMode.HALF_EVEN));
+            winAmountDisplay.setText("WIN $" +jacksOrBetter.getWinAmount());
+        }
+    }
+
+    // Sets the text of the session's running statistics: return to player with its 95% margin, standard deviation per game, hit frequency, and hands since the last royal flush.
+    private void setStatsDisplay(SessionStats stats) {
+        // With a MainWindow, the statistics display may not have been built yet.
+        if (statsDisplay != null) {
+            statsDisplay.setText(stats.toString());
         }
     }
 
     // Clears the textual "WIN" display (so it will disappear off the UI) by setting the win amount to zero and processing through setWinAmountDisplay.
     // Called when the player starts a new game and deals their first set of cards.
     private void resetWinAmountDisplay() {
-        jacksOrBetter.setWinAmount(BigDecimal.valueOf(0));
+        jacksOrBetter.setWinAmountCents(0);
         setWinAmountDisplay();
     }
 
+    // Called when the player presses the "ADVICE" button.
+    // Turning advice on starts solving the pay table in the background, and asks for advice right away if a hand is waiting for holds.
+    @FXML
+    private void toggleAdvice() {
+        if (adviceToggle.isSelected()) {
+            advisor.prepare(jacksOrBetter.getPayTable(), jacksOrBetter.getBet());
+            if (!newHand) {
+                requestAdvice();
+            }
+        } else {
+            clearAdvice();
+        }
+    }
+
+    // Asks the advisor for the best hold of the dealt cards, if advice mode is on. The UI is not held up; the advice is shown when it is ready.
+    private void requestAdvice() {
+        // With a MainWindow, the advice button may not have been built yet.
+        if (adviceToggle == null || !adviceToggle.isSelected()) {
+            return;
+        }
+        int[] hand = new int[Deck.HAND_SIZE];
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            hand[i] = deck.getHandCard(i);
+        }
+        advisor.request(hand, jacksOrBetter.getPayTable(), jacksOrBetter.getBet(), this::showAdvice);
+    }
+
+    // Highlights the hold buttons of the advised hold and shows its expected value.
+    private void showAdvice(int bestHold, double[] holdValues) {
+        adviseHold(hold1, (bestHold & 1) != 0);
+        adviseHold(hold2, (bestHold & 2) != 0);
+        adviseHold(hold3, (bestHold & 4) != 0);
+        adviseHold(hold4, (bestHold & 8) != 0);
+        adviseHold(hold5, (bestHold & 16) != 0);
+        adviceDisplay.setText(String.format("ADVICE EV %.2f CREDITS", holdValues[bestHold]));
+    }
+
+    // Drops any pending advice and removes the highlights.
+    private void clearAdvice() {
+        if (adviceToggle == null) {
+            return;
+        }
+        advisor.cancel();
+        adviseHold(hold1, false);
+        adviseHold(hold2, false);
+        adviseHold(hold3, false);
+        adviseHold(hold4, false);
+        adviseHold(hold5, false);
+        adviceDisplay.setText("");
+    }
+
+    private static void adviseHold(ToggleButton button, boolean advised) {
+        button.setStyle(advised ? ADVISED_STYLE : "");
+    }
+
+    // Called when the player presses the "AUTO" button.
+    // Turning autoplay on plays games on a background thread with the configured MappedStrategyTable, or else the SimpleHoldStrategy, and every button that changes the game is greyed out until it stops.
+    // Turning it off stops autoplay after the game being played.
+    @FXML
+    private void toggleAutoplay() {
+        if (!autoplayToggle.isSelected()) {
+            autoplay.stop();
+            // Pressing again before the game thread stops would start a second one, so the button waits for renderAutoplay to enable it.
+            autoplayToggle.setDisable(true);
+            return;
+        }
+        // Autoplay only starts between games.
+        if (!newHand) {
+            autoplayToggle.setSelected(false);
+            return;
+        }
+        clearAdvice();
+        resetWinAmountDisplay();
+        setAutoplayControlsDisable(true);
+        autoplay = new Autoplay(deck, jacksOrBetter, bank,
+                MappedStrategyTable.configuredOrSimple(jacksOrBetter.getPayTable().getPrizes(jacksOrBetter.getBet())), autoplayGames, autoplayStopBelowCents);
+        autoplay.start();
+        autoplayRenderer.start();
+    }
+
+    // Processes changes when the player presses the autoplay games button, cycling through 100, 1,000, 10,000, and 100,000 games.
+    @FXML
+    private void setAutoplayGamesDisplay() {
+        autoplayGames = autoplayGames >= 100_000 ? 100 : autoplayGames * 10;
+        autoplayGamesButton.setText(String.format("%,d GAMES", autoplayGames));
+    }
+
+    // Shows the newest autoplayed game, if there is one, and gives the controls back once autoplay has stopped.
+    // The finished flag is read before the frame is taken, so the last game is always shown.
+    private void renderAutoplay() {
+        boolean finished = autoplay.isFinished();
+        Autoplay.Frame frame = autoplay.takeFrame();
+        if (frame != null) {
+            card1.setText(Card.of(PackedHand.card(frame.getCards(), 0)).toString());
+            card2.setText(Card.of(PackedHand.card(frame.getCards(), 1)).toString());
+            card3.setText(Card.of(PackedHand.card(frame.getCards(), 2)).toString());
+            card4.setText(Card.of(PackedHand.card(frame.getCards(), 3)).toString());
+            card5.setText(Card.of(PackedHand.card(frame.getCards(), 4)).toString());
+            handStatusDisplay.setText(frame.getHandStatus() == Deck.NOTHING ? "" : Deck.getStatusName(frame.getHandStatus()));
+            winAmountDisplay.setText(frame.getWinAmountCents() == 0 ? "" : "WIN $" +BigDecimal.valueOf(frame.getWinAmountCents(), 2));
+            bankrollDisplay.setText("$" +BigDecimal.valueOf(frame.getBankrollCents(), 2));
+            autoplayDisplay.setText(String.format("AUTOPLAY %,d", frame.getGamesPlayed()));
+            setStatsDisplay(frame.getSessionStats());
+        }
+        if (finished) {
+            autoplayRenderer.stop();
+            autoplay = null;
+            autoplayToggle.setSelected(false);
+            autoplayToggle.setDisable(false);
+            setAutoplayControlsDisable(false);
+            setBankrollDisplay();
+        }
+    }
+
+    // Greys out, or gives back, every button that would change the game while autoplay owns it. The "HOLD" buttons are already greyed out between games.
+    private void setAutoplayControlsDisable(boolean disable) {
+        dealButton.setDisable(disable);
+        changeBetButton.setDisable(disable);
+        changeDenominationButton.setDisable(disable);
+        adviceToggle.setDisable(disable);
+        autoplayGamesButton.setDisable(disable);
+    }
+
     // Runs toggle functions.
     private void handleToggles() {
         toggleChangeDenomination();
@@ -0,0 +1,30 @@
+package com.dommyg.videopoker;
+
+/**
+ * This interface supplies the random numbers a Deck uses to pick cards.
+ * Each Deck gets its own instance, so decks on different threads never share random number state.
+ */
+
+interface DealRandom {
+
+    // Returns a random number from 0 (inclusive) to bound (exclusive).
+    int nextInt(int bound);
+
+    // Returns 64 random bits, which the Deck uses as the seed of each game.
+    long nextLong();
+
+    // A generator with a random seed, for normal play.
+    static DealRandom splittable() {
+        return new SplittableDealRandom();
+    }
+
+    // A generator that always produces the same cards for the same seed, for simulations that need to be repeated.
+    static DealRandom seeded(long seed) {
+        return new SplittableDealRandom(seed);
+    }
+
+    // A generator that uses the random number generator of whichever thread is dealing.
+    static DealRandom threadLocal() {
+        return new ThreadLocalDealRandom();
+    }
+}
@@ -1,10 +1,5 @@
 package com.dommyg.videopoker;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Random;
-
 /**
  * This class allows for creating a deck of playing cards. It also has functions to determine which outcome the player arrived at during the game.
  */
@@ -23,112 +18,103 @@ class Deck {
     static final int JACKS_OR_BETTER = 1;
     static final int NOTHING = 0;
 
-    // The master deck are all 52 cards, which is used to reset the deck at the end of the game.
-    static final private ArrayList<Card> MASTER_DECK = initializeMasterDeck();
+    // Names of the hand outcomes, indexed by their hierarchical value.
+    static final private String[] STATUS_NAMES = {"NOTHING", "JACKS OR BETTER", "TWO PAIRS", "THREE OF A KIND", "STRAIGHT",
+            "FLUSH", "FULL HOUSE", "FOUR OF A KIND", "STRAIGHT FLUSH", "ROYAL FLUSH"};
+
+    // The number of cards in the player's hand.
+    static final int HAND_SIZE = 5;
+
+    // The master deck are all 52 card indexes in order, which is used to reset the deck at the end of the game.
+    static final private int[] MASTER_DECK = initializeMasterDeck();
 
     // Adding all 52 cards to the MASTER_DECK.
-    private static ArrayList<Card> initializeMasterDeck() {
-        ArrayList<Card> deck = new ArrayList<>();
-        //TODO: Use constants instead of string literals.
-        deck.add(new Card("Hearts", "Two"));
-        deck.add(new Card("Hearts", "Three"));
-        deck.add(new Card("Hearts", "Four"));
-        deck.add(new Card("Hearts", "Five"));
-        deck.add(new Card("Hearts", "Six"));
-        deck.add(new Card("Hearts", "Seven"));
-        deck.add(new Card("Hearts", "Eight"));
-        deck.add(new Card("Hearts", "Nine"));
-        deck.add(new Card("Hearts", "Ten"));
-        deck.add(new Card("Hearts", "Jack"));
-        deck.add(new Card("Hearts", "Queen"));
-        deck.add(new Card("Hearts", "King"));
-        deck.add(new Card("Hearts", "Ace"));
-
-        deck.add(new Card("Diamonds", "Two"));
-        deck.add(new Card("Diamonds", "Three"));
-        deck.add(new Card("Diamonds", "Four"));
-        deck.add(new Card("Diamonds", "Five"));
-        deck.add(new Card("Diamonds", "Six"));
-        deck.add(new Card("Diamonds", "Seven"));
-        deck.add(new Card("Diamonds", "Eight"));
-        deck.add(new Card("Diamonds", "Nine"));
-        deck.add(new Card("Diamonds", "Ten"));
-        deck.add(new Card("Diamonds", "Jack"));
-        deck.add(new Card("Diamonds", "Queen"));
-        deck.add(new Card("Diamonds", "King"));
-        deck.add(new Card("Diamonds", "Ace"));
-
-        deck.add(new Card("Spades", "Two"));
-        deck.add(new Card("Spades", "Three"));
-        deck.add(new Card("Spades", "Four"));
-        deck.add(new Card("Spades", "Five"));
-        deck.add(new Card("Spades", "Six"));
-        deck.add(new Card("Spades", "Seven"));
-        deck.add(new Card("Spades", "Eight"));
-        deck.add(new Card("Spades", "Nine"));
-        deck.add(new Card("Spades", "Ten"));
-        deck.add(new Card("Spades", "Jack"));
-        deck.add(new Card("Spades", "Queen"));
-        deck.add(new Card("Spades", "King"));
-        deck.add(new Card("Spades", "Ace"));
-
-        deck.add(new Card("Clubs", "Two"));
-        deck.add(new Card("Clubs", "Three"));
-        deck.add(new Card("Clubs", "Four"));
-        deck.add(new Card("Clubs", "Five"));
-        deck.add(new Card("Clubs", "Six"));
-        deck.add(new Card("Clubs", "Seven"));
-        deck.add(new Card("Clubs", "Eight"));
-        deck.add(new Card("Clubs", "Nine"));
-        deck.add(new Card("Clubs", "Ten"));
-        deck.add(new Card("Clubs", "Jack"));
-        deck.add(new Card("Clubs", "Queen"));
-        deck.add(new Card("Clubs", "King"));
-        deck.add(new Card("Clubs", "Ace"));
+    private static int[] initializeMasterDeck() {
+        int[] deck = new int[HandEvaluator.SUITS * HandEvaluator.VALUES];
+        for (int i = 0; i < deck.length; i++) {
+            deck[i] = i;
+        }
         return deck;
     }
 
     //TODO: You might want to use /** */ style comments for intellisense to work when looking at these fields.
 
     // The dynamic deck where cards are removed from and added to the player's hand.
-    private ArrayList<Card> deck;
-    // The player's hand in an ArrayList, which has the functionality of shifting items towards the top of the array when items are removed.
-    // This is exploited in the determineHandStatus function, which needs to remove and shift cards to calculate wins and losses.
-    // The contents of this ArrayList are never displayed in the UI.
-    private ArrayList<Card> hand;
+    // Only the first deckSize positions hold cards that have not been dealt yet; dealt cards are swapped to the end.
+    private int[] deck;
+    private int deckSize;
+    // The position each card of this game was picked from, in dealing order, so the swaps can be undone when the game is over.
+    // A game deals at most two full hands.
+    private int[] picks;
     // The player's hand in an array, which has the functionality of keeping items in the same position when items are removed.
     // This is exploited in functions involving displaying the player's hand in the UI.
     // On video poker machines, when a card is removed from the player's hand, the card is replaced in the same position; no cards are shifted.
     // This array allows the displaying of the player's hand to function in a way faithful to a real video poker machine.
-    private Card[] handDisplay;
+    // Positions hold card indexes, and Card.NO_CARD when empty.
+    private int[] handDisplay;
     // The hierarchical value of the hand's outcome, which is never displayed on the UI.
     private int handStatus;
+    // The PayTable class of the hand's outcome, which is the handStatus except that four of a kind is split by the value of the four cards.
+    private int handPayClass;
     // The written version of the handStatus's hierarchical value, which is displayed on the UI.
     private String handStatusDisplay;
+    // Picks the seed of each game. Each deck has its own, so decks on different threads do not share random number state.
+    private final DealRandom random;
+    // Picks the cards of the current game from its seed.
+    private final GameRandom gameRandom = new GameRandom();
+    // Receives the deal, hold, draw, and outcome of every game. Nothing is recorded unless a sink is set.
+    private GameEventSink events = GameEventSink.DISCARD;
+    // Times the dealing and evaluating, and counts the outcomes. Nothing is recorded unless metrics are set.
+    private GameMetrics metrics = GameMetrics.DISCARD;
+    // The games this deck has dealt, which picks the games that are timed, and whether the current game is one of them.
+    private int gamesDealt;
+    private boolean timed;
+    // How long the first cycle of the current game took to deal and evaluate, or 0 if the game is not timed.
+    private long firstCycleNanos;
 
     Deck() {
-        this.deck = new ArrayList<>();
-        this.deck.addAll(MASTER_DECK);
-        this.hand = new ArrayList<>();
-        this.handDisplay = new Card[5];
+        this(DealRandom.splittable());
+    }
+
+    Deck(DealRandom random) {
+        this.random = random;
+        this.deck = MASTER_DECK.clone();
+        this.deckSize = deck.length;
+        this.picks = new int[HAND_SIZE * 2];
+        this.handDisplay = new int[HAND_SIZE];
+        resetHandDisplay();
         this.handStatus = 0;
         this.handStatusDisplay = "";
     }
 
+    void setEventSink(GameEventSink events) {
+        this.events = events;
+    }
+
+    void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     // The first cycle happens when the player starts a new game by pressing the "DEAL" button.
     void firstCycle() {
-        deal(deck, handDisplay);
-        // Creating a new ArrayList which is used to determine hand status and report it to the player in the UI.
-        // The determineHandStatus includes functions which might remove some or all the cards, which is why this duplicate ArrayList is created and used instead of the hand itself.
-        ArrayList<Card> handCheck = new ArrayList<>();
-        handCheck.addAll(hand);
-        determineHandStatus(handCheck);
+        firstCycle(random.nextLong());
+    }
+
+    // Starts a game dealt from the given seed. The same seed and holds always produce the same game, which is how recorded games are audited.
+    void firstCycle(long gameSeed) {
+        gameRandom.setSeed(gameSeed);
+        events.record(GameEventSink.SEED, gameSeed);
+        timed = metrics.isTimed(++gamesDealt);
+        firstCycleNanos = dealAndEvaluate();
+        events.record(GameEventSink.DEAL, getPackedHand());
     }
 
     // The second cycle happens when the player presses "DEAL" after the opportunity to hold cards.
     void secondCycle() {
-        deal(deck, handDisplay);
-        determineHandStatus(hand);
+        dealAndEvaluate();
+        events.record(GameEventSink.DRAW, getPackedHand());
+        events.record(GameEventSink.OUTCOME, handStatus);
+        metrics.recordOutcome(handStatus);
     }
 
     // The final cycle happens at the end of the game.
@@ -137,347 +123,136 @@ class Deck {
         resetHandDisplay();
     }
 
+    // Returns how long the first cycle of the current game took to deal and evaluate, or 0 if the game is not timed.
+    long getFirstCycleNanos() {
+        return firstCycleNanos;
+    }
+
+    // Fills the hand and evaluates it, timing both when this game is timed. Returns the time both took, or 0 if the game is not timed.
+    private long dealAndEvaluate() {
+        if (!timed) {
+            deal();
+            determineHandStatus();
+            return 0;
+        }
+        long start = System.nanoTime();
+        deal();
+        long dealt = System.nanoTime();
+        determineHandStatus();
+        long evaluated = System.nanoTime();
+        metrics.recordDeal(dealt - start);
+        metrics.recordEvaluate(evaluated - dealt);
+        return evaluated - start;
+    }
+
     // Deals cards from the deck into the player's hand until it has five total.
-    // TODO: use more descriptive variable names for your arguments.
-    private void deal(ArrayList<Card> array1, Card[] array2) {
+    private void deal() {
         // Checking if there are empty positions in the array.
         // All positions would be empty at the start of the game.
         // Some positions might be empty when a player holds some cards and deals new ones.
-        for (int i = 0; i < 5; i++) {
-            if (array2[i] == null) {
+        for (int i = 0; i < HAND_SIZE; i++) {
+            if (handDisplay[i] == Card.NO_CARD) {
                 // If the position is empty, pick a random card from the deck.
-                int randomSelection = getRandom(array1);
-                // Place the selected card into the null position in the array.
-                array2[i] = array1.get(randomSelection);
-                // Remove the selected card from the deck.
-                array1.remove(randomSelection);
+                // The deck is shuffled only as far as needed: the picked card is swapped with the last undealt card, and the deck shrinks by one.
+                int randomSelection = gameRandom.nextInt(deckSize);
+                picks[deck.length - deckSize] = randomSelection;
+                deckSize--;
+                int card = deck[randomSelection];
+                deck[randomSelection] = deck[deckSize];
+                deck[deckSize] = card;
+                // Place the selected card into the empty position in the array.
+                handDisplay[i] = card;
             }
         }
-        // TODO: Figure out what these things are...
-        if (hand.size() > 0) {
-            this.hand.subList(0, hand.size()).clear();
-        }
-        Collections.addAll(hand, handDisplay);
     }
 
     // Processes holds once the player presses "DEAL." If a card is not selected to be held by the player, it will be discarded, and vice versa.
     void hold(boolean card1, boolean card2, boolean card3, boolean card4, boolean card5) {
-        if (!card1) {
-            discard(1);
-        }
-        if (!card2) {
-            discard(2);
-        }
-        if (!card3) {
-            discard(3);
-        }
-        if (!card4) {
-            discard(4);
-        }
-        if (!card5) {
-            discard(5);
+        hold((card1 ? 1 : 0) | (card2 ? 2 : 0) | (card3 ? 4 : 0) | (card4 ? 8 : 0) | (card5 ? 16 : 0));
+    }
+
+    // Processes holds given as a mask, where bit 0 holds the first card and bit 4 holds the fifth card.
+    void hold(int holdMask) {
+        events.record(GameEventSink.HOLD, holdMask);
+        for (int i = 0; i < HAND_SIZE; i++) {
+            if ((holdMask & (1 << i)) == 0) {
+                discard(i + 1);
+            }
         }
     }
 
     // Discards a selected card from the handDisplay.
     private void discard(int choice) {
-        this.handDisplay[(choice-1)] = null;
+        this.handDisplay[(choice-1)] = Card.NO_CARD;
     }
 
-    // Clears all cards in the deck and resets it by copying over the MASTER_DECK.
+    // Resets the deck to the order of the MASTER_DECK by undoing this game's swaps, newest first.
+    // This only touches the cards that were dealt, and every game starts from the same order, so a game can be repeated from its random numbers alone.
     // This is used when the game is over.
     private void resetDeck() {
-        deck.subList(0, deck.size()).clear();
-        deck.addAll(MASTER_DECK);
-    }
-
-    private void resetHandDisplay() {
-        for (int i = 0; i < 5; i++) {
-            this.handDisplay[i] = null;
+        while (deckSize < deck.length) {
+            int randomSelection = picks[deck.length - deckSize - 1];
+            int card = deck[randomSelection];
+            deck[randomSelection] = deck[deckSize];
+            deck[deckSize] = card;
+            deckSize++;
         }
     }
 
-    private static int getRandom(ArrayList<Card> array) {
-        return new Random().nextInt(array.size());
-    }
-
-    private static int[] sortHand(ArrayList<Card> cards) {
-        // Changing the Card objects into an int from the numberValue.
-        // TODO: Use a constant for 5 (HAND_SIZE?)
-        int[] sortedCards = new int[5];
-        for (int i = 0; i < 5; i++) {
-            sortedCards[i] = cards.get(i).getNumberValue();
+    private void resetHandDisplay() {
+        for (int i = 0; i < HAND_SIZE; i++) {
+            this.handDisplay[i] = Card.NO_CARD;
         }
-        // Sorting the cards.
-        Arrays.sort(sortedCards);
-        return sortedCards;
     }
 
-    private static void printArray(ArrayList<Card> array) {
-        for (int i = 0; i < array.size(); i++) {
-            System.out.print(array.get(i));
-            if (i < array.size()-1) {
-                System.out.print(", ");
-            }
-        }
-        System.out.println(".");
+    // Ranks the five cards in the handDisplay with the HandEvaluator's lookup tables.
+    private void determineHandStatus() {
+        reportStatus(HandEvaluator.evaluate(handDisplay[0], handDisplay[1], handDisplay[2], handDisplay[3], handDisplay[4]));
+        this.handPayClass = PayTable.payClass(handStatus, handDisplay[0], handDisplay[1], handDisplay[2]);
     }
 
-    private void determineHandStatus(ArrayList<Card> cards) {
-        if (checkRoyalFlush(cards)) {
-            reportStatus(ROYAL_FLUSH);
-        }
-        // Required to handle other possibilities.
-        int currentStatus = NOTHING;
-
-        if (checkStraight(cards)) {
-            currentStatus = STRAIGHT;
-        }
-        if (checkFlush(cards)) {
-            if (currentStatus == STRAIGHT) {
-                reportStatus(STRAIGHT_FLUSH);
-            } else {
-                currentStatus = FLUSH;
-            }
-        }
-        // Required along with currentStatus to handle the final possibilities.
-        int newStatus = checkPair(cards);
-
-        if (newStatus > currentStatus) {
-            reportStatus(newStatus);
-        } else {
-            reportStatus(currentStatus);
-        }
+    static String getStatusName(int status) {
+        return STATUS_NAMES[status];
     }
 
     int getHandStatus() {
         return handStatus;
     }
 
-    private void reportStatus(int status) {
-        switch (status) {
-            case ROYAL_FLUSH:
-                this.handStatus = ROYAL_FLUSH;
-                this.handStatusDisplay = "ROYAL FLUSH";
-                System.out.println("ROYAL FLUSH!!!");
-                break;
-
-            case STRAIGHT_FLUSH:
-                this.handStatus = STRAIGHT_FLUSH;
-                this.handStatusDisplay = "STRAIGHT FLUSH";
-                System.out.println("Straight flush!!!");
-                break;
-
-            case FOUR_OF_A_KIND:
-                this.handStatus = FOUR_OF_A_KIND;
-                this.handStatusDisplay = "FOUR OF A KIND";
-                System.out.println("Four of a kind!!!");
-                break;
-
-            case FULL_HOUSE:
-                this.handStatus = FULL_HOUSE;
-                this.handStatusDisplay = "FULL HOUSE";
-                System.out.println("Full house!!!");
-                break;
-
-            case FLUSH:
-                this.handStatus = FLUSH;
-                this.handStatusDisplay = "FLUSH";
-                System.out.println("Flush!!!");
-                break;
-
-            case STRAIGHT:
-                this.handStatus = STRAIGHT;
-                this.handStatusDisplay = "STRAIGHT";
-                System.out.println("Straight!");
-                break;
-
-            case THREE_OF_A_KIND:
-                this.handStatus = THREE_OF_A_KIND;
-                this.handStatusDisplay = "THREE OF A KIND";
-                System.out.println("Three of a kind!");
-                break;
-
-            case TWO_PAIR:
-                this.handStatus = TWO_PAIR;
-                this.handStatusDisplay = "TWO PAIRS";
-                System.out.println("Two pairs!");
-                break;
-
-            case JACKS_OR_BETTER:
-                this.handStatus = JACKS_OR_BETTER;
-                this.handStatusDisplay = "JACKS OR BETTER";
-                System.out.println("Jacks or better!");
-                break;
-
-            case NOTHING:
-                this.handStatus = NOTHING;
-                this.handStatusDisplay = "";
-                System.out.println("Your hand is not a winner.");
-                break;
-        }
+    int getHandPayClass() {
+        return handPayClass;
     }
 
-    private static boolean checkFlush(ArrayList<Card> cards) {
-        // Checking to see if cards all have the same suit.
-        for (int i = 1; i < 5; i++) {
-            if (!cards.get(0).getSuit().equals(cards.get(i).getSuit())) {
-                return false;
-            }
-        }
-        return true;
+    // Sets the hand status and the text reported to the player on the UI. A hand that is not a winner shows no text.
+    private void reportStatus(int status) {
+        this.handStatus = status;
+        this.handStatusDisplay = status == NOTHING ? "" : STATUS_NAMES[status];
     }
 
-    private static boolean checkStraight(ArrayList<Card> cards) {
-        // Transitioning the hand into int array.
-        int[] sortedCards = sortHand(cards);
-        // Checking to see if the final card is an ace.
-        if (sortedCards[4] == 14) {
-            // Checking to see if the first card is either a 2 or a 10.
-            // The ace can start an Ace-2-3-4-5 straight or can be the end of a 10-Jack-Queen-King-Ace straight.
-            if (sortedCards[0] == 2 || sortedCards[0] == 10) {
-                // Checking for a straight.
-                for (int i = 0; i < 3; i++) {
-                    if (sortedCards[i+1] != sortedCards[i]+1) {
-                        return false;
-                    }
-                }
-            } else {
-                return false;
-            }
-            // Checking for a straight.
-        } else {
-            for (int i = 0; i < 4; i++) {
-                if (sortedCards[i+1] != sortedCards[i]+1) {
-                    return false;
-                }
-            }
-        } return true;
+    // Returns the shared Card at a position in the hand, for displaying on the UI.
+    Card getHandDisplay(int item) {
+        return Card.of(handDisplay[item]);
     }
 
-    private static boolean checkRoyalFlush(ArrayList<Card> cards) {
-        // Checking to see if the cards all have the same suit.
-        if (!checkFlush(cards)) {
-            return false;
-        }
-        // Checking to see if the cards' values are all 10 and above.
-        for (int i = 0; i < 5; i++) {
-            if (cards.get(i).getNumberValue() < 10) {
-                return false;
-            }
-        }
-        // Checking to see if the cards are all different (meaning a 10, Jack, Queen, King, and Ace).
-        for (int i = 0; i < 4; i++) {
-            for (int x = 1 + i; x < 5; x++) {
-                if (cards.get(i).getValue().equals(cards.get(x).getValue())) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    // Returns the card index at a position in the hand.
+    int getHandCard(int item) {
+        return handDisplay[item];
     }
 
-    private static int checkPair(ArrayList<Card> cards) {
-        // These arrays are to store pairs.
-        // There could be a maximum of two pairs with a five card hand.
-        // Outcomes are TWO PAIRS, THREE OF A KIND, FOUR OF A KIND, and FULL HOUSE (a pair and three of a kind).
-        ArrayList<Card> firstSet = new ArrayList<>();
-        ArrayList<Card> secondSet = new ArrayList<>();
-
-        while(!cards.isEmpty()) {
-            // Making a copy of the first card in the array for reference.
-            Card source = new Card(cards.get(0));
-            // Checking to see if there are matching values.
-            if (firstSet.size() != 0) {
-                // Checking to see if the reference card matches the value of this set.
-                if (source.getValue().equals(firstSet.get(0).getValue())) {
-                    firstSet.add(cards.get(0));
-                    cards.remove(0);
-                    // Reference card matched and has been removed.
-                    // Returning to start of loop to get a new reference card.
-                    continue;
-                }
-            }
-            // Checking to see if there are matching values in the next set (if the first set is populated but the reference card did not match their value).
-            if (secondSet.size() != 0) {
-                // Checking to see if the reference card matches the value of this set.
-                if (source.getValue().equals(secondSet.get(0).getValue())) {
-                    secondSet.add(cards.get(0));
-                    cards.remove(0);
-                    // Reference card matched and has been removed.
-                    // Returning to start of loop to get a new reference card.
-                    continue;
-                }
-            }
-            // Checking to see if there are at least two cards left in the hand to examine.
-            if (cards.size() >= 2) {
-                // A value to indicate if a match was found during the for loop.
-                boolean match = false;
-                for (int i = 1; i < cards.size(); i++) {
-                    if (source.getValue().equals(cards.get(i).getValue())) {
-                        // Flagging a match.
-                        match = true;
-                        // Checking to see if there are cards in the first set of matches.
-                        // If so, these matched cards should be added into the second set, which logically would be empty.
-                        // Matched cards discovered here would not match the values in the first set (this would have been caught at the start of the while loop.
-                        if (firstSet.size() == 0) {
-                            firstSet.add(cards.get(0));
-                            firstSet.add(cards.get(i));
-                            cards.remove(i);
-                            cards.remove(0);
-                            // Reference card matched another card and both have been removed.
-                            // Returning to start of while loop to get a new reference card.
-                            break;
-                        } else {
-                            secondSet.add(cards.get(0));
-                            secondSet.add(cards.get(i));
-                            cards.remove(i);
-                            cards.remove(0);
-                            // Reference card matched another card and both have been removed.
-                            // Returning to start of while loop to get a new reference card.
-                            break;
-                        }
-                    }
-                }
-                // If no match was found, throw out the reference card; it matches none of the cards.
-                if (!match) {
-                    cards.remove(0);
-                }
-                // This is the final card in the hand and matches nothing.
-                // Discard it; the hand is now empty and the while loop will terminate.
-            } else {
-                cards.remove(0);
-            }
-        }
-        // Print out a result for the player.
-        if (firstSet.isEmpty()) {
-            return NOTHING;
-        } else {
-            if (firstSet.size() == 4) {
-                return FOUR_OF_A_KIND;
-            } else if (firstSet.size() == 3) {
-                if (!secondSet.isEmpty()) {
-                    return FULL_HOUSE;
-                } else {
-                    return THREE_OF_A_KIND;
-                }
-            } else if (secondSet.isEmpty()) {
-                if (firstSet.get(0).getNumberValue() >= 11){
-                    return JACKS_OR_BETTER;
-                } else {
-                    return NOTHING;
-                }
-            } else if (secondSet.size() == 2) {
-                return TWO_PAIR;
-            } else {
-                return FULL_HOUSE;
-            }
-        }
+    // Copies the cards that have not been dealt yet into the array and returns how many there are.
+    int copyUndealt(int[] undealt) {
+        System.arraycopy(deck, 0, undealt, 0, deckSize);
+        return deckSize;
+    }
 
+    // Returns the random numbers of the game in progress, so extra hands of a multi-hand game are dealt from the same seed.
+    DealRandom getGameRandom() {
+        return gameRandom;
     }
 
-    Card getHandDisplay(int item) {
-        return handDisplay[item];
+    // Returns the five cards of the hand as a PackedHand.
+    long getPackedHand() {
+        return PackedHand.pack(handDisplay);
     }
 
     String getHandStatusDisplay() {
@@ -0,0 +1,72 @@
+package com.dommyg.videopoker;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is where an AsyncEventLog writes its events: the console, a file, or nowhere.
+ * Each event is written as one line of tab separated fields: source, event type, and value.
+ */
+
+class EventOutput {
+
+    private final Writer writer;
+    // Whether closing this output closes the writer. The console is left open for the rest of the program.
+    private final boolean ownsWriter;
+    private final StringBuilder line = new StringBuilder();
+
+    private EventOutput(Writer writer, boolean ownsWriter) {
+        this.writer = writer;
+        this.ownsWriter = ownsWriter;
+    }
+
+    static EventOutput console() {
+        return new EventOutput(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), false);
+    }
+
+    static EventOutput file(Path file) throws IOException {
+        return new EventOutput(Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND), true);
+    }
+
+    // Formats events but throws them away, for timing the log itself.
+    static EventOutput discard() {
+        return new EventOutput(Writer.nullWriter(), true);
+    }
+
+    void write(long source, int type, long value) throws IOException {
+        line.setLength(0);
+        line.append(source).append('\t').append(GameEventSink.typeName(type)).append('\t');
+        switch (type) {
+            case GameEventSink.DEAL:
+            case GameEventSink.DRAW:
+                PackedHand.appendTo(line, value);
+                break;
+
+            case GameEventSink.OUTCOME:
+                line.append(Deck.getStatusName((int) value));
+                break;
+
+            default:
+                line.append(value);
+        }
+        line.append('\n');
+        writer.append(line);
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    void close() throws IOException {
+        writer.flush();
+        if (ownsWriter) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class audits the games recorded in a Journal. Every game is dealt again from its recorded seed and holds,
+ * and its recorded cards, outcome, and payout are checked against a fresh evaluation.
+ * A multi-hand game records a DRAW and OUTCOME for every hand; they are folded together, in order, so every hand is checked without keeping each one.
+ * The journal is read once, in order, to gather each game's records into columns. The games are then dealt again in parallel,
+ * since every game starts from the same deck order and depends only on its own seed and holds.
+ */
+
+final class GameAudit {
+
+    // Games are checked in chunks of this many, which the workers take in turn.
+    static final private int CHUNK = 1 << 14;
+
+    // Bits of a game's seen mask, one for each kind of record it needs.
+    static final private int SEEN_SEED = 1;
+    static final private int SEEN_DEAL = 2;
+    static final private int SEEN_HOLD = 4;
+    static final private int SEEN_DRAW = 8;
+    static final private int SEEN_OUTCOME = 16;
+    static final private int SEEN_PAYOUT = 32;
+    static final private int SEEN_BET = 64;
+    static final private int SEEN_ALL = 127;
+
+    // The pay table the games were played on.
+    private final PayTable payTable;
+
+    // The recorded games, one array per field, so no object is made per game.
+    private int games;
+    private long[] sources = new long[1 << 16];
+    // The sequence number of each game's WAGER record, which identifies the game in the report.
+    private long[] sequences = new long[sources.length];
+    private long[] seeds = new long[sources.length];
+    private long[] wagers = new long[sources.length];
+    private byte[] bets = new byte[sources.length];
+    // The number of hands of each game. Zero, from a game that did not record it, means one.
+    private byte[] hands = new byte[sources.length];
+    private long[] dealt = new long[sources.length];
+    private int[] holdMasks = new int[sources.length];
+    // The drawn cards and outcomes of each game's hands, folded together. A single hand game keeps its cards and outcome as they are.
+    private long[] drawn = new long[sources.length];
+    private long[] outcomes = new long[sources.length];
+    private long[] payouts = new long[sources.length];
+    private byte[] seen = new byte[sources.length];
+
+    // The game in progress of every source that has one.
+    private final Map<Long, Integer> openGames = new HashMap<>();
+    // The last source looked up, since a source's records usually come in runs.
+    private long lastSource = -1;
+    private int lastGame = -1;
+
+    GameAudit(PayTable payTable) {
+        this.payTable = payTable;
+    }
+
+    // Gathers the games recorded in a journal file.
+    static GameAudit read(Path journalFile, PayTable payTable) throws IOException {
+        GameAudit audit = new GameAudit(payTable);
+        Journal.read(journalFile, audit::add);
+        return audit;
+    }
+
+    int getGames() {
+        return games;
+    }
+
+    // Adds one journal record to the game in progress of its source.
+    void add(long sequence, long source, int type, long value) {
+        if (type == GameEventSink.WAGER) {
+            startGame(sequence, source, value);
+            return;
+        }
+        int game = findOpenGame(source);
+        if (game < 0) {
+            // A record outside a game, such as a session being opened or closed.
+            return;
+        }
+        switch (type) {
+            case GameEventSink.HANDS:
+                hands[game] = (byte) value;
+                break;
+
+            case GameEventSink.BET:
+                bets[game] = (byte) value;
+                seen[game] |= SEEN_BET;
+                break;
+
+            case GameEventSink.SEED:
+                seeds[game] = value;
+                seen[game] |= SEEN_SEED;
+                break;
+
+            case GameEventSink.DEAL:
+                dealt[game] = value;
+                seen[game] |= SEEN_DEAL;
+                break;
+
+            case GameEventSink.HOLD:
+                holdMasks[game] = (int) value;
+                seen[game] |= SEEN_HOLD;
+                break;
+
+            case GameEventSink.DRAW:
+                drawn[game] = (seen[game] & SEEN_DRAW) == 0 ? value : fold(drawn[game], value);
+                seen[game] |= SEEN_DRAW;
+                break;
+
+            case GameEventSink.OUTCOME:
+                outcomes[game] = (seen[game] & SEEN_OUTCOME) == 0 ? value : fold(outcomes[game], value);
+                seen[game] |= SEEN_OUTCOME;
+                break;
+
+            case GameEventSink.PAYOUT:
+                payouts[game] = value;
+                seen[game] |= SEEN_PAYOUT;
+                endGame(source);
+                break;
+
+            default:
+                // Any other record, such as a session being reopened, ends the game in progress unfinished.
+                endGame(source);
+        }
+    }
+
+    // Deals every gathered game again across the worker threads and returns the merged result.
+    AuditResult verify(int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            AtomicInteger nextChunk = new AtomicInteger();
+            List<Future<AuditResult>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> verifyChunks(nextChunk)));
+            }
+
+            AuditResult total = new AuditResult();
+            for (Future<AuditResult> worker : workers) {
+                total.merge(worker.get());
+            }
+            total.setElapsedNanos(System.nanoTime() - start);
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("An audit worker failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Checks chunks of games on one worker thread until none are left.
+    private AuditResult verifyChunks(AtomicInteger nextChunk) {
+        Deck deck = new Deck();
+        // The worker's extra hands for each number of hands per game, made when a game with that many hands is first checked.
+        MultiHand[] multiHands = new MultiHand[MultiHand.MAX_HANDS + 1];
+        AuditResult result = new AuditResult();
+        int first;
+        while ((first = nextChunk.getAndIncrement() * CHUNK) < games) {
+            int last = Math.min(games, first + CHUNK);
+            for (int game = first; game < last; game++) {
+                verifyGame(deck, multiHands, game, result);
+            }
+        }
+        return result;
+    }
+
+    private void verifyGame(Deck deck, MultiHand[] multiHands, int game, AuditResult result) {
+        if ((seen[game] & SEEN_SEED) == 0) {
+            result.addUnseeded(1);
+            return;
+        }
+        if (seen[game] != SEEN_ALL) {
+            result.addUnfinished(1);
+            return;
+        }
+        int handCount = Math.max(1, hands[game]);
+        if (handCount > MultiHand.MAX_HANDS) {
+            result.recordMismatch(wagers[game], payouts[game], describe(game, "hands", handCount, MultiHand.MAX_HANDS, false));
+            return;
+        }
+
+        deck.firstCycle(seeds[game]);
+        long dealtCards = deck.getPackedHand();
+        deck.hold(holdMasks[game]);
+        MultiHand multiHand = null;
+        if (handCount == 1) {
+            deck.secondCycle();
+        } else {
+            if (multiHands[handCount] == null) {
+                multiHands[handCount] = new MultiHand(deck, handCount);
+            }
+            multiHand = multiHands[handCount];
+            multiHand.draw();
+        }
+        long drawnCards = deck.getPackedHand();
+        long outcome = deck.getHandStatus();
+        int credits = payTable.getCredits(deck.getHandPayClass(), bets[game]);
+        for (int hand = 1; hand < handCount; hand++) {
+            drawnCards = fold(drawnCards, multiHand.getPackedHand(hand));
+            outcome = fold(outcome, multiHand.getStatus(hand));
+            credits += payTable.getCredits(multiHand.getPayClass(hand), bets[game]);
+        }
+        deck.finalCycle();
+        // The wager is the denomination times the bet for every hand, and the pay table gives the win in credits of that denomination.
+        long payout = wagers[game] / ((long) bets[game] * handCount) * credits;
+
+        if (dealtCards != dealt[game]) {
+            result.recordMismatch(wagers[game], payouts[game], describe(game, "dealt cards", dealt[game], dealtCards, true));
+        } else if (drawnCards != drawn[game]) {
+            result.recordMismatch(wagers[game], payouts[game], handCount == 1
+                    ? describe(game, "drawn cards", drawn[game], drawnCards, true)
+                    : describe(game, "drawn cards of the " + handCount + " hands do not match"));
+        } else if (outcome != outcomes[game]) {
+            result.recordMismatch(wagers[game], payouts[game], handCount == 1
+                    ? describe(game, "outcome", outcomes[game], outcome, false)
+                    : describe(game, "outcomes of the " + handCount + " hands do not match"));
+        } else if (payout != payouts[game]) {
+            result.recordMismatch(wagers[game], payouts[game], describe(game, "payout", payouts[game], payout, false));
+        } else {
+            result.recordMatch(wagers[game], payouts[game]);
+        }
+    }
+
+    // Folds the next hand's cards or outcome into those of the hands before it.
+    private static long fold(long folded, long value) {
+        return folded * 0x9E3779B97F4A7C15L + value;
+    }
+
+    private String describe(int game, String problem) {
+        return "Source " + sources[game] + ", game at record " + sequences[game] + ": " + problem;
+    }
+
+    private String describe(int game, String field, long recorded, long expected, boolean cards) {
+        StringBuilder description = new StringBuilder();
+        description.append("Source ").append(sources[game]).append(", game at record ").append(sequences[game]).append(": ")
+                .append(field).append(" recorded ");
+        if (cards) {
+            PackedHand.appendTo(description, recorded);
+            description.append(", dealt again ");
+            PackedHand.appendTo(description, expected);
+        } else {
+            description.append(recorded).append(", expected ").append(expected);
+        }
+        return description.toString();
+    }
+
+    private void startGame(long sequence, long source, long wagerCents) {
+        endGame(source);
+        if (games == sources.length) {
+            grow();
+        }
+        int game = games++;
+        sources[game] = source;
+        sequences[game] = sequence;
+        wagers[game] = wagerCents;
+        openGames.put(source, game);
+        lastSource = source;
+        lastGame = game;
+    }
+
+    // Stops adding records to the source's game in progress. A game that never got its payout stays unfinished.
+    private void endGame(long source) {
+        if (openGames.remove(source) != null && lastSource == source) {
+            lastGame = -1;
+        }
+    }
+
+    private int findOpenGame(long source) {
+        if (source != lastSource) {
+            Integer game = openGames.get(source);
+            lastSource = source;
+            lastGame = game == null ? -1 : game;
+        }
+        return lastGame;
+    }
+
+    private void grow() {
+        int length = sources.length * 2;
+        sources = Arrays.copyOf(sources, length);
+        sequences = Arrays.copyOf(sequences, length);
+        seeds = Arrays.copyOf(seeds, length);
+        wagers = Arrays.copyOf(wagers, length);
+        bets = Arrays.copyOf(bets, length);
+        hands = Arrays.copyOf(hands, length);
+        dealt = Arrays.copyOf(dealt, length);
+        holdMasks = Arrays.copyOf(holdMasks, length);
+        drawn = Arrays.copyOf(drawn, length);
+        outcomes = Arrays.copyOf(outcomes, length);
+        payouts = Arrays.copyOf(payouts, length);
+        seen = Arrays.copyOf(seen, length);
+    }
+
+    // Checks the games against the configured PayTable.
+    // Usage: GameAudit journalFile [threads]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path journalFile = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        GameAudit audit = read(journalFile, PayTable.configured());
+        System.out.printf("Read %,d games in %.2f s%n", audit.getGames(), (System.nanoTime() - start) / 1e9);
+        AuditResult result = audit.verify(threads);
+        System.out.print(result);
+        if (result.getMismatches() > 0) {
+            System.exit(1);
+        }
+    }
+}
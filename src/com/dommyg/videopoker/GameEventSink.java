@@ -0,0 +1,83 @@
+package com.dommyg.videopoker;
+
+/**
+ * This interface receives the events of a game as they happen. An event is a type and one long value, so recording one never creates objects.
+ * DISCARD ignores everything, which turns event logging off at no cost.
+ */
+
+@FunctionalInterface
+interface GameEventSink {
+
+    // The kinds of events, and what their value holds.
+    // The amount taken from the bankroll, in cents.
+    int WAGER = 0;
+    // The five cards of the first cycle, as a PackedHand.
+    int DEAL = 1;
+    // The cards the player held, as a hold mask.
+    int HOLD = 2;
+    // The five cards after the second cycle, as a PackedHand.
+    int DRAW = 3;
+    // The hand status of the finished game.
+    int OUTCOME = 4;
+    // The amount added to the bankroll, in cents.
+    int PAYOUT = 5;
+    // The seed every card of the game is dealt from, recorded before the DEAL.
+    int SEED = 6;
+    // The bet in coins, recorded after the WAGER.
+    int BET = 7;
+    // The number of hands played in the game, recorded after the BET. A multi-hand game records a DRAW and OUTCOME for every hand.
+    int HANDS = 8;
+
+    GameEventSink DISCARD = (type, value) -> {
+    };
+
+    void record(int type, long value);
+
+    // Returns a sink that records every event to both sinks, first to second.
+    static GameEventSink tee(GameEventSink first, GameEventSink second) {
+        if (first == DISCARD) {
+            return second;
+        }
+        if (second == DISCARD) {
+            return first;
+        }
+        return (type, value) -> {
+            first.record(type, value);
+            second.record(type, value);
+        };
+    }
+
+    static String typeName(int type) {
+        switch (type) {
+            case WAGER:
+                return "WAGER";
+
+            case DEAL:
+                return "DEAL";
+
+            case HOLD:
+                return "HOLD";
+
+            case DRAW:
+                return "DRAW";
+
+            case OUTCOME:
+                return "OUTCOME";
+
+            case PAYOUT:
+                return "PAYOUT";
+
+            case SEED:
+                return "SEED";
+
+            case BET:
+                return "BET";
+
+            case HANDS:
+                return "HANDS";
+
+                default:
+                    return "UNKNOWN";
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.dommyg.videopoker;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class counts what the game loop does: games played, coin in and coin out, the outcome of every hand, and how long dealing, evaluating, paying out, and whole games take.
+ * A whole game's time is the machine's own work on it, the wager, deal, draw, and payout added together; the player's time between the deal and the draw is left out.
+ * Every count is a LongAdder and every latency a LatencyHistogram, so recording never locks or creates objects and the metrics can stay on in production.
+ * Counts are exact. Latencies are sampled from one game in every TIMING_INTERVAL each Deck and Machine plays, because reading the clock costs more than counting.
+ * Decks and Machines record into DISCARD unless they are given other metrics, which turns recording off at the cost of one check; the running game uses global, which is registered with JMX.
+ */
+
+final class GameMetrics implements GameMetricsMXBean {
+
+    static final GameMetrics DISCARD = new GameMetrics(false);
+    static final private GameMetrics GLOBAL = new GameMetrics(true);
+    static final private String OBJECT_NAME = "com.dommyg.videopoker:type=GameMetrics";
+    // One game in this many is timed. A power of two.
+    static final private int TIMING_INTERVAL = 16;
+
+    private final boolean enabled;
+    private final LongAdder gamesPlayed = new LongAdder();
+    private final LongAdder coinInCents = new LongAdder();
+    private final LongAdder coinOutCents = new LongAdder();
+    // Finished hands counted by hand status. Every hand of a multi-hand game is counted.
+    private final LongAdder[] outcomes = new LongAdder[Deck.ROYAL_FLUSH + 1];
+    private final LatencyHistogram deal = new LatencyHistogram();
+    private final LatencyHistogram evaluate = new LatencyHistogram();
+    private final LatencyHistogram payout = new LatencyHistogram();
+    // The machine's own work on a whole game, without the player's time between the deal and the draw.
+    private final LatencyHistogram game = new LatencyHistogram();
+
+    // The games played and the time when getGamesPerSecond was last read. Only JMX reads these, so they are guarded by this object.
+    private long rateGames;
+    private long rateNanos = System.nanoTime();
+
+    GameMetrics() {
+        this(true);
+    }
+
+    private GameMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    // Returns the metrics of the game being played, which are registered with JMX by register.
+    static GameMetrics global() {
+        return GLOBAL;
+    }
+
+    // Registers the global metrics with the platform MBean server. Registering more than once does nothing.
+    static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(GLOBAL, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered.
+        } catch (JMException e) {
+            System.out.println("ERROR: Could not register the game metrics with JMX. " + e.getMessage());
+        }
+    }
+
+    // Registers the global metrics on a background thread. Starting the platform MBean server takes a few hundred milliseconds, which the UI should not wait for.
+    static void registerInBackground() {
+        Thread registration = new Thread(GameMetrics::register, "metrics-registration");
+        registration.setDaemon(true);
+        registration.start();
+    }
+
+    // Returns true if the game with this number, counted by the Deck or Machine playing it, should be timed.
+    boolean isTimed(int game) {
+        return enabled && (game & (TIMING_INTERVAL - 1)) == 0;
+    }
+
+    void recordDeal(long nanos) {
+        deal.record(nanos);
+    }
+
+    void recordEvaluate(long nanos) {
+        evaluate.record(nanos);
+    }
+
+    void recordWager(long cents) {
+        if (enabled) {
+            coinInCents.add(cents);
+        }
+    }
+
+    void recordOutcome(int handStatus) {
+        if (enabled) {
+            outcomes[handStatus].increment();
+        }
+    }
+
+    // Records the payout that ends a game.
+    void recordPayout(long cents) {
+        if (enabled) {
+            coinOutCents.add(cents);
+            gamesPlayed.increment();
+        }
+    }
+
+    // Records the time paying out a timed game took.
+    void recordPayoutTime(long nanos) {
+        payout.record(nanos);
+    }
+
+    // Records the machine's own work on a timed game: its wager, deal, draw, and payout added together.
+    void recordGameTime(long nanos) {
+        game.record(nanos);
+    }
+
+    @Override
+    public long getGamesPlayed() {
+        return gamesPlayed.sum();
+    }
+
+    @Override
+    public synchronized double getGamesPerSecond() {
+        long games = gamesPlayed.sum();
+        long now = System.nanoTime();
+        double rate = now == rateNanos ? 0 : (games - rateGames) * 1e9 / (now - rateNanos);
+        rateGames = games;
+        rateNanos = now;
+        return rate;
+    }
+
+    @Override
+    public long getCoinInCents() {
+        return coinInCents.sum();
+    }
+
+    @Override
+    public long getCoinOutCents() {
+        return coinOutCents.sum();
+    }
+
+    @Override
+    public Map<String, Long> getOutcomeCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            counts.put(Deck.getStatusName(i), outcomes[i].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public LatencySummary getDealLatency() {
+        return deal.summarize();
+    }
+
+    @Override
+    public LatencySummary getEvaluateLatency() {
+        return evaluate.summarize();
+    }
+
+    @Override
+    public LatencySummary getPayoutLatency() {
+        return payout.summarize();
+    }
+
+    @Override
+    public LatencySummary getGameLatency() {
+        return game.summarize();
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Games played: %,d%n", getGamesPlayed()));
+        text.append(String.format("Coin in: $%,.2f%n", getCoinInCents() / 100.0));
+        text.append(String.format("Coin out: $%,.2f%n", getCoinOutCents() / 100.0));
+        for (Map.Entry<String, Long> outcome : getOutcomeCounts().entrySet()) {
+            text.append(String.format("%-16s %,d%n", outcome.getKey(), outcome.getValue()));
+        }
+        text.append("Deal: ").append(getDealLatency()).append(System.lineSeparator());
+        text.append("Evaluate: ").append(getEvaluateLatency()).append(System.lineSeparator());
+        text.append("Payout: ").append(getPayoutLatency()).append(System.lineSeparator());
+        text.append("Game (without player time): ").append(getGameLatency()).append(System.lineSeparator());
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+}
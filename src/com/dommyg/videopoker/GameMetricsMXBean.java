@@ -0,0 +1,34 @@
+package com.dommyg.videopoker;
+
+import java.util.Map;
+
+/**
+ * This interface is the JMX view of GameMetrics, registered as com.dommyg.videopoker:type=GameMetrics. JMX only reads public interfaces, which is why it is public.
+ */
+
+public interface GameMetricsMXBean {
+
+    long getGamesPlayed();
+
+    // The games per second since this attribute was last read, or since the metrics were created on the first read.
+    double getGamesPerSecond();
+
+    long getCoinInCents();
+
+    long getCoinOutCents();
+
+    // The number of hands finished with each outcome, by hand status name.
+    Map<String, Long> getOutcomeCounts();
+
+    LatencySummary getDealLatency();
+
+    LatencySummary getEvaluateLatency();
+
+    LatencySummary getPayoutLatency();
+
+    // The machine's own work on a whole game: the wager, deal, draw, and payout added together, without the player's time between the deal and the draw.
+    LatencySummary getGameLatency();
+
+    // Returns every metric as text, one per line.
+    String dump();
+}
@@ -0,0 +1,39 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class deals the cards of a single game from that game's seed, so any game can be dealt again from its seed alone.
+ * It is a SplitMix64 generator that is reseeded in place at the start of each game, so no object is made per game.
+ */
+
+final class GameRandom implements DealRandom {
+
+    static final private long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    // Starts the stream of random numbers over from a game's seed.
+    void setSeed(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Scales 32 random bits to the bound by multiplying, rejecting the few values that would make some results more likely than others.
+    @Override
+    public int nextInt(int bound) {
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xFFFFFFFFL) < bound) {
+            long threshold = (0x1_0000_0000L - bound) % bound;
+            while ((product & 0xFFFFFFFFL) < threshold) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+}
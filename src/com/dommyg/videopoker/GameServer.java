@@ -0,0 +1,339 @@
+package com.dommyg.videopoker;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class hosts many independent GameSessions for floor terminals, without a UI.
+ * Terminals connect over a local socket and send one command per line; every command gets a one line reply starting with OK or ERR.
+ *
+ * OPEN                       -> OK id bankrollCents
+ * BET id coins               -> OK
+ * DENOM id cents             -> OK
+ * HANDS id count             -> OK
+ * DEAL id                    -> OK cards status bankrollCents
+ * DRAW id holdMask           -> OK cards status winCents bankrollCents
+ * STATE id                   -> OK cards status winCents bankrollCents
+ * CLOSE id                   -> OK
+ *
+ * Cards are five comma separated card indexes, and holdMask holds the first card with bit 0.
+ * In a multi-hand game the cards are those of the first hand, and winCents is the win of all hands together.
+ * Each connection is served on its own virtual thread when the Java runtime has them, and on a pooled thread otherwise.
+ * With a Journal, every session's money and games are journaled, and restore brings the sessions back after a restart.
+ * OPEN, DEAL, DRAW, and CLOSE only reply once their records are on disk, so a terminal never shows a wager or payout that a crash could lose.
+ * With a HandHistory, every finished game is also stored for analysis.
+ * Every session plays on its own sub-ledger of the server's account Bank, which rolls all sessions up into one total.
+ * Opening a session pays its bankroll into the account and out to the session's sub-ledger, and closing it moves what is left back into the account.
+ * Every session plays the server's PayTable. main loads the configured table once, the same one GameAudit checks the journal against.
+ * Every session records into the global GameMetrics, which main registers with JMX.
+ */
+
+final class GameServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    // How long close waits for the connection threads to finish once their sockets are closed.
+    static final private long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final ExecutorService connections;
+    // The sockets of every connected terminal, so close can disconnect them all.
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+    // The server's account. Every open session plays on a sub-ledger of it, and closed sessions' money stays in it.
+    private final Bank account = new Bank(0);
+    // The pay table every session plays.
+    private final PayTable payTable;
+    // Where session events are logged, or null to log nothing.
+    private final AsyncEventLog eventLog;
+    // Where session money and games are journaled, or null to keep them only in memory.
+    private final Journal journal;
+    // Where finished games are stored, or null to store none.
+    private final HandHistory history;
+
+    GameServer(int port, PayTable payTable, AsyncEventLog eventLog, Journal journal, HandHistory history) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.connections = newConnectionExecutor();
+        this.payTable = payTable;
+        this.eventLog = eventLog;
+        this.journal = journal;
+        this.history = history;
+    }
+
+    // Brings back the sessions of a replayed journal with their bankrolls.
+    // A hand that was interrupted before its payout is voided, and its wager goes back to the bankroll.
+    void restore(JournalRecovery recovery) {
+        for (JournalRecovery.SessionState state : recovery.getSessions()) {
+            addSession(state.getSource(), state.getBankrollCents() + state.getPendingWagerCents());
+        }
+        nextSessionId.accumulateAndGet(recovery.getHighestSource() + 1, Math::max);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getSessionCount() {
+        return sessions.size();
+    }
+
+    // Returns the money in the server's account plus the bankrolls of every open session, in cents.
+    long getTotalCents() {
+        return account.getTotalCents();
+    }
+
+    // Accepts connections until the server is closed.
+    void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // The server socket was closed while waiting.
+                break;
+            }
+            socket.setTcpNoDelay(true);
+            openSockets.add(socket);
+            // A terminal accepted while the server was closing missed close's sweep, so it is disconnected here.
+            if (serverSocket.isClosed()) {
+                closeQuietly(socket);
+                break;
+            }
+            try {
+                connections.execute(() -> handleConnection(socket));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    // Stops accepting terminals, disconnects every connected one, and waits for their threads to finish,
+    // so no command is still being handled when the journal, event log, and hand history are closed after the server.
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        connections.shutdown();
+        try {
+            if (!connections.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                connections.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            connections.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeQuietly(Socket socket) {
+        openSockets.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // The terminal is gone either way.
+        }
+    }
+
+    // Reads commands from one terminal and answers each one until the terminal disconnects.
+    private void handleConnection(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            StringBuilder reply = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                reply.setLength(0);
+                handleCommand(line.trim(), reply);
+                reply.append('\n');
+                out.append(reply);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The terminal disconnected, or the server closed; its sessions stay open so it can reconnect.
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    // Runs one command and writes its reply.
+    void handleCommand(String line, StringBuilder reply) {
+        String[] words = line.split(" ");
+        try {
+            switch (words[0]) {
+                case "OPEN":
+                    GameSession opened = openSession();
+                    awaitJournal();
+                    reply.append("OK ").append(opened.getId()).append(' ').append(opened.getBankrollCents());
+                    return;
+
+                case "BET":
+                    replyTo(findSession(words).setBet(Integer.parseInt(words[2])), "Cannot change the bet now.", reply);
+                    return;
+
+                case "DENOM":
+                    replyTo(findSession(words).setDenominationCents(Integer.parseInt(words[2])), "Cannot change the denomination now.", reply);
+                    return;
+
+                case "HANDS":
+                    replyTo(findSession(words).setHands(Integer.parseInt(words[2])), "Cannot change the number of hands now.", reply);
+                    return;
+
+                case "DEAL":
+                    GameSession dealt = findSession(words);
+                    if (dealt.deal()) {
+                        awaitJournal();
+                        reply.append("OK ");
+                        PackedHand.appendTo(reply, dealt.getCards());
+                        reply.append(' ').append(dealt.getHandStatus()).append(' ').append(dealt.getBankrollCents());
+                    } else if (!dealt.isNewHand()) {
+                        reply.append("ERR A game is already in progress.");
+                    } else {
+                        reply.append("ERR Insufficient funds.");
+                    }
+                    return;
+
+                case "DRAW":
+                    GameSession drawn = findSession(words);
+                    if (drawn.draw(Integer.parseInt(words[2]))) {
+                        awaitJournal();
+                        appendState(drawn, reply);
+                    } else {
+                        reply.append("ERR No game is in progress.");
+                    }
+                    return;
+
+                case "STATE":
+                    appendState(findSession(words), reply);
+                    return;
+
+                case "CLOSE":
+                    long closed = Long.parseLong(words[1]);
+                    GameSession removed = sessions.remove(closed);
+                    if (removed != null) {
+                        account.closeSubLedger(removed.getBank());
+                        if (journal != null) {
+                            journal.append(closed, Journal.CLOSE, 0);
+                            awaitJournal();
+                        }
+                    }
+                    replyTo(removed != null, "No such session.", reply);
+                    return;
+
+                default:
+                    reply.append("ERR Unknown command.");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            reply.append("ERR Bad command: ").append(e.getMessage());
+        }
+    }
+
+    // Waits until every record journaled so far, including those of the command being answered, is on disk.
+    private void awaitJournal() {
+        if (journal != null) {
+            journal.awaitDurable(journal.getLastSequence());
+        }
+    }
+
+    private GameSession openSession() {
+        return addSession(nextSessionId.getAndIncrement(), new Bank().getBankrollCents());
+    }
+
+    private GameSession addSession(long id, long bankrollCents) {
+        GameEventSink events = eventLog == null ? GameEventSink.DISCARD : eventLog.sink(id);
+        if (journal != null) {
+            journal.append(id, Journal.OPEN, bankrollCents);
+            events = GameEventSink.tee(journal.sink(id), events);
+        }
+        if (history != null) {
+            events = GameEventSink.tee(events, history.sink());
+        }
+        account.credit(bankrollCents);
+        GameSession session = new GameSession(id, account.openSubLedger(bankrollCents), DealRandom.splittable(), events, payTable);
+        sessions.put(id, session);
+        return session;
+    }
+
+    private GameSession findSession(String[] words) {
+        GameSession session = sessions.get(Long.parseLong(words[1]));
+        if (session == null) {
+            throw new IllegalArgumentException("No such session.");
+        }
+        return session;
+    }
+
+    private static void replyTo(boolean success, String error, StringBuilder reply) {
+        reply.append(success ? "OK" : "ERR " + error);
+    }
+
+    private static void appendState(GameSession session, StringBuilder reply) {
+        synchronized (session) {
+            reply.append("OK ");
+            PackedHand.appendTo(reply, session.getCards());
+            reply.append(' ').append(session.getHandStatus()).append(' ').append(session.getWinAmountCents())
+                    .append(' ').append(session.getBankrollCents());
+        }
+    }
+
+    // Uses a virtual thread per connection when the runtime supports them (Java 21 and later), and a cached thread pool otherwise.
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // Usage: GameServer [port] [journal file] [event log file] [hand history directory]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        Path journalFile = args.length > 1 ? Paths.get(args[1]) : null;
+        AsyncEventLog eventLog = args.length > 2 ? new AsyncEventLog(EventOutput.file(Paths.get(args[2])), 1 << 16) : null;
+        HandHistory history = args.length > 3 ? new HandHistory(Paths.get(args[3])) : null;
+        PayTable payTable = PayTable.configured();
+
+        JournalRecovery recovery = journalFile != null && Files.exists(journalFile) ? Journal.replay(journalFile) : null;
+        Journal journal = journalFile != null ? new Journal(journalFile, 2) : null;
+        GameMetrics.register();
+        try (GameServer server = new GameServer(port, payTable, eventLog, journal, history)) {
+            if (recovery != null) {
+                server.restore(recovery);
+                System.out.println("Restored " + server.getSessionCount() + " sessions from " + recovery.getRecords() + " journal records.");
+            }
+            System.out.println("Video poker server listening on port " + server.getPort() + ", playing " + payTable.getName());
+            server.serve();
+            System.out.println("Server account total: $" + BigDecimal.valueOf(server.getTotalCents(), 2));
+        } finally {
+            System.out.print(GameMetrics.global().dump());
+            if (journal != null) {
+                journal.close();
+            }
+            if (eventLog != null) {
+                eventLog.close();
+            }
+            if (history != null) {
+                history.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class is one player's game without a UI: its own Deck, Bank, and Machine, played in the same two steps as the Controller's "DEAL" button.
+ * The Machine pays from the PayTable the session is given, which the GameServer shares between all its sessions.
+ * The methods are synchronized, so a session can be driven from any thread.
+ */
+
+class GameSession {
+
+    private final long id;
+    private final Deck deck;
+    private final Bank bank;
+    private final Machine machine;
+
+    // Tracks if the player is starting a new game, or mid-game (after holding cards and requesting new ones).
+    private boolean newHand = true;
+    // The five cards showing after the last deal or draw, as a PackedHand. The deck clears its hand once a game is over, so the cards are kept here.
+    private long cards;
+
+    GameSession(long id, Bank bank, DealRandom random, GameEventSink events, PayTable payTable) {
+        this.id = id;
+        this.deck = new Deck(random);
+        this.bank = bank;
+        this.machine = new Machine(deck, bank, payTable);
+        machine.setEventSink(events);
+        machine.setMetrics(GameMetrics.global());
+    }
+
+    long getId() {
+        return id;
+    }
+
+    Bank getBank() {
+        return bank;
+    }
+
+    // Starts a new game: takes the wager and deals five cards. Returns false if a game is already in progress or the bankroll does not cover the wager.
+    synchronized boolean deal() {
+        if (!newHand || !machine.processWager()) {
+            return false;
+        }
+        machine.setWinAmountCents(0);
+        deck.firstCycle();
+        cards = deck.getPackedHand();
+        newHand = false;
+        return true;
+    }
+
+    // Finishes the game: discards the cards not held, draws replacements, and pays out. Returns false if no game is in progress.
+    synchronized boolean draw(int holdMask) {
+        if (newHand) {
+            return false;
+        }
+        deck.hold(holdMask);
+        machine.drawHands();
+        cards = deck.getPackedHand();
+        deck.finalCycle();
+        machine.determinePayout();
+        newHand = true;
+        return true;
+    }
+
+    // Sets the bet (1-5 coins). Returns false if a game is in progress or the bet is out of range.
+    synchronized boolean setBet(int bet) {
+        if (!newHand || bet < 1 || bet > 5) {
+            return false;
+        }
+        machine.setBet(bet);
+        return true;
+    }
+
+    // Sets the number of hands played each game, for multi-hand play. Returns false if a game is in progress or the count is out of range.
+    synchronized boolean setHands(int hands) {
+        if (!newHand || hands < 1 || hands > MultiHand.MAX_HANDS) {
+            return false;
+        }
+        machine.setHands(hands);
+        return true;
+    }
+
+    // Sets the denomination in cents. Returns false if a game is in progress or the denomination is not positive.
+    synchronized boolean setDenominationCents(int cents) {
+        if (!newHand || cents <= 0) {
+            return false;
+        }
+        machine.setBetDenominationCents(cents);
+        return true;
+    }
+
+    synchronized boolean isNewHand() {
+        return newHand;
+    }
+
+    synchronized long getCards() {
+        return cards;
+    }
+
+    synchronized int getHandStatus() {
+        return deck.getHandStatus();
+    }
+
+    synchronized long getWinAmountCents() {
+        return machine.getWinAmountCents();
+    }
+
+    synchronized long getBankrollCents() {
+        return bank.getBankrollCents();
+    }
+}
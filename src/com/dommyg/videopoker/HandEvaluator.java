@@ -0,0 +1,140 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class ranks five card hands using precomputed lookup tables. Cards are passed in as their index (0-51), where the index is the suit (Hearts, Diamonds, Spades, Clubs) times 13 plus the value (Two is 0, Ace is 12).
+ * The evaluator never allocates and returns the same hand status codes found in the Deck.
+ */
+
+final class HandEvaluator {
+
+    // The number of different values and suits a card can have.
+    static final int VALUES = 13;
+    static final int SUITS = 4;
+
+    // Each rank takes a four bit counter inside of a long. Adding the counters of five cards gives how many times each rank appears in the hand.
+    static final private long NIBBLE_LOW_BITS = 0x1111111111111L;
+    // The counters belonging to a Jack, Queen, King, and Ace, which are the only pairs that pay.
+    static final private long HIGH_PAIR_BITS = 0x1111000000000L;
+
+    // Lookup tables indexed by card index.
+    static final private long[] RANK_COUNTER = new long[VALUES * SUITS];
+    static final private int[] RANK_BIT = new int[VALUES * SUITS];
+    static final private int[] SUIT_BIT = new int[VALUES * SUITS];
+
+    // Status of a hand with five different values, indexed by the values' bitmask. The flush versions are stored in the upper half.
+    // Masks without exactly five bits are NOTHING, which the batch evaluator relies on.
+    static final private byte[] UNIQUE_STATUS = new byte[2 << VALUES];
+    // Status of a hand with repeated values, for the batch evaluator. The index is the number of pairs (bits 0-1), then one bit each for
+    // three of a kind, four of a kind, and a pair of Jacks or better. A hand with five different values has index 0, which is NOTHING.
+    static final private byte[] REPEATED_STATUS = new byte[32];
+
+    static {
+        for (int card = 0; card < VALUES * SUITS; card++) {
+            RANK_COUNTER[card] = 1L << ((card % VALUES) * 4);
+            RANK_BIT[card] = 1 << (card % VALUES);
+            SUIT_BIT[card] = 1 << (card / VALUES);
+        }
+
+        // The ace-to-five straight (the "wheel") uses the ace as a low card.
+        int wheel = 0b1000000001111;
+        int royal = 0b1111100000000;
+        for (int mask = 0; mask < (1 << VALUES); mask++) {
+            if (Integer.bitCount(mask) != 5) {
+                continue;
+            }
+            boolean straight = mask == wheel || (mask >>> Integer.numberOfTrailingZeros(mask)) == 0b11111;
+            UNIQUE_STATUS[mask] = (byte) (straight ? Deck.STRAIGHT : Deck.NOTHING);
+            if (mask == royal) {
+                UNIQUE_STATUS[mask | (1 << VALUES)] = Deck.ROYAL_FLUSH;
+            } else if (straight) {
+                UNIQUE_STATUS[mask | (1 << VALUES)] = Deck.STRAIGHT_FLUSH;
+            } else {
+                UNIQUE_STATUS[mask | (1 << VALUES)] = Deck.FLUSH;
+            }
+        }
+
+        for (int index = 0; index < REPEATED_STATUS.length; index++) {
+            int pairs = index & 3;
+            if ((index & 8) != 0) {
+                REPEATED_STATUS[index] = Deck.FOUR_OF_A_KIND;
+            } else if ((index & 4) != 0) {
+                REPEATED_STATUS[index] = (byte) (pairs != 0 ? Deck.FULL_HOUSE : Deck.THREE_OF_A_KIND);
+            } else if (pairs == 2) {
+                REPEATED_STATUS[index] = Deck.TWO_PAIR;
+            } else if (pairs == 1 && (index & 16) != 0) {
+                REPEATED_STATUS[index] = Deck.JACKS_OR_BETTER;
+            }
+        }
+    }
+
+    private HandEvaluator() {
+    }
+
+    // Returns the hand status (Deck.ROYAL_FLUSH ... Deck.NOTHING) of the five cards.
+    static int evaluate(int card1, int card2, int card3, int card4, int card5) {
+        long counters = RANK_COUNTER[card1] + RANK_COUNTER[card2] + RANK_COUNTER[card3] + RANK_COUNTER[card4] + RANK_COUNTER[card5];
+
+        // A counter of exactly two has only its second bit set.
+        long pairs = (counters >>> 1) & ~counters & NIBBLE_LOW_BITS;
+        // A counter of exactly three has its first and second bits set.
+        long trips = counters & (counters >>> 1) & NIBBLE_LOW_BITS;
+        // A counter of four has only its third bit set.
+        long quads = (counters >>> 2) & NIBBLE_LOW_BITS;
+
+        if ((pairs | trips | quads) == 0) {
+            // All five values are different, so the hand can only be a flush, a straight, both, or nothing.
+            int flush = SUIT_BIT[card1] & SUIT_BIT[card2] & SUIT_BIT[card3] & SUIT_BIT[card4] & SUIT_BIT[card5];
+            int values = RANK_BIT[card1] | RANK_BIT[card2] | RANK_BIT[card3] | RANK_BIT[card4] | RANK_BIT[card5];
+            return UNIQUE_STATUS[(flush == 0 ? 0 : 1 << VALUES) | values];
+        }
+        if (quads != 0) {
+            return Deck.FOUR_OF_A_KIND;
+        }
+        if (trips != 0) {
+            return pairs != 0 ? Deck.FULL_HOUSE : Deck.THREE_OF_A_KIND;
+        }
+        if (Long.bitCount(pairs) == 2) {
+            return Deck.TWO_PAIR;
+        }
+        return (pairs & HIGH_PAIR_BITS) != 0 ? Deck.JACKS_OR_BETTER : Deck.NOTHING;
+    }
+
+    // Writes the hand status of each of a batch of hands, whose cards are laid out five to a hand.
+    // Evaluating a whole draw in one pass keeps the lookup tables in cache from one hand to the next.
+    static void evaluate(int[] cards, int hands, int[] statuses) {
+        for (int hand = 0, first = 0; hand < hands; hand++, first += Deck.HAND_SIZE) {
+            statuses[hand] = evaluateWithoutBranches(cards[first], cards[first + 1], cards[first + 2], cards[first + 3], cards[first + 4]);
+        }
+    }
+
+    // Writes the hand status of each of a batch of PackedHands, from index from up to but not including index to.
+    static void evaluate(long[] packedHands, int from, int to, int[] statuses) {
+        for (int hand = from; hand < to; hand++) {
+            long packed = packedHands[hand];
+            statuses[hand] = evaluateWithoutBranches((int) packed & 63, (int) (packed >>> 6) & 63, (int) (packed >>> 12) & 63,
+                    (int) (packed >>> 18) & 63, (int) (packed >>> 24) & 63);
+        }
+    }
+
+    // The same status as evaluate, worked out with no branches for the batch evaluators.
+    // Which branch evaluate takes depends on the hand, and with random hands the processor guesses wrong about half the time, which costs more than the evaluating.
+    // Here both kinds of hand are looked up every time: a hand with five different values has no repeated status, a hand with repeated values is NOTHING
+    // in UNIQUE_STATUS because fewer than five value bits are set, and a flush always has five different values, so the higher of the two is the status.
+    private static int evaluateWithoutBranches(int card1, int card2, int card3, int card4, int card5) {
+        long counters = RANK_COUNTER[card1] + RANK_COUNTER[card2] + RANK_COUNTER[card3] + RANK_COUNTER[card4] + RANK_COUNTER[card5];
+        long pairs = (counters >>> 1) & ~counters & NIBBLE_LOW_BITS;
+        long trips = counters & (counters >>> 1) & NIBBLE_LOW_BITS;
+        long quads = (counters >>> 2) & NIBBLE_LOW_BITS;
+        int repeated = Long.bitCount(pairs) | nonZero(trips) << 2 | nonZero(quads) << 3 | nonZero(pairs & HIGH_PAIR_BITS) << 4;
+
+        int flush = SUIT_BIT[card1] & SUIT_BIT[card2] & SUIT_BIT[card3] & SUIT_BIT[card4] & SUIT_BIT[card5];
+        int values = RANK_BIT[card1] | RANK_BIT[card2] | RANK_BIT[card3] | RANK_BIT[card4] | RANK_BIT[card5];
+        int unique = UNIQUE_STATUS[(-flush >>> 31) << VALUES | values];
+        return Math.max(unique, REPEATED_STATUS[repeated]);
+    }
+
+    // Returns 1 if the value is not zero, and 0 if it is.
+    private static int nonZero(long value) {
+        return (int) ((value | -value) >>> 63);
+    }
+}
@@ -0,0 +1,413 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * This class stores every finished game in memory-mapped column files, one file per field, so hundreds of millions of games fit without any objects on the heap.
+ * A game is its dealt cards and drawn cards as PackedHands, its hold mask, hand status, bet, hands, denomination, and payout. In a multi-hand game the cards and
+ * status are those of the first hand, and the payout is for every hand.
+ * Queries scan the columns they need in parallel chunks on the fork-join pool, touching only those files.
+ * The row count is written after a game's fields, so a game cut off part way through writing is not in the store when it is opened again.
+ */
+
+final class HandHistory implements AutoCloseable {
+
+    // Columns are mapped in segments of this many rows, adding another segment whenever the last one fills up.
+    static final private int SEGMENT_SHIFT = 20;
+    static final private int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    // Queries scan chunks of this many rows. A segment holds a whole number of chunks, so a chunk never spans two segments.
+    static final private int CHUNK_ROWS = 1 << 16;
+
+    private final FileChannel rowCountChannel;
+    private final MappedByteBuffer rowCountFile;
+    private final Column dealt;
+    private final Column holdMasks;
+    private final Column drawn;
+    private final Column statuses;
+    private final Column bets;
+    private final Column hands;
+    private final Column denominations;
+    private final Column payouts;
+    private volatile long rows;
+
+    // Opens the store in a directory, creating it if it does not exist, and appends after the games already in it.
+    HandHistory(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.rowCountChannel = FileChannel.open(directory.resolve("rows"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.rowCountFile = rowCountChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        rowCountFile.order(ByteOrder.LITTLE_ENDIAN);
+        this.dealt = new Column(directory.resolve("dealt.col"), Long.BYTES);
+        this.holdMasks = new Column(directory.resolve("holds.col"), Byte.BYTES);
+        this.drawn = new Column(directory.resolve("drawn.col"), Long.BYTES);
+        this.statuses = new Column(directory.resolve("statuses.col"), Byte.BYTES);
+        this.bets = new Column(directory.resolve("bets.col"), Byte.BYTES);
+        this.hands = new Column(directory.resolve("hands.col"), Byte.BYTES);
+        this.denominations = new Column(directory.resolve("denominations.col"), Integer.BYTES);
+        this.payouts = new Column(directory.resolve("payouts.col"), Long.BYTES);
+        this.rows = rowCountFile.getLong(0);
+    }
+
+    // Returns a sink that stores each game of one source, such as a session, once its payout is recorded.
+    // The sink keeps the game in progress, so each source needs its own.
+    GameEventSink sink() {
+        return new Recorder();
+    }
+
+    // Stores one finished game. Games from many sources may be appended at once; each is written whole before the next.
+    synchronized void append(long dealtCards, int holdMask, long drawnCards, int status, int bet, int handCount, int denominationCents, long payoutCents) {
+        long row = rows;
+        int offset = (int) (row & (SEGMENT_ROWS - 1));
+        dealt.segment(row).putLong(offset * Long.BYTES, dealtCards);
+        holdMasks.segment(row).put(offset, (byte) holdMask);
+        drawn.segment(row).putLong(offset * Long.BYTES, drawnCards);
+        statuses.segment(row).put(offset, (byte) status);
+        bets.segment(row).put(offset, (byte) bet);
+        hands.segment(row).put(offset, (byte) handCount);
+        denominations.segment(row).putInt(offset * Integer.BYTES, denominationCents);
+        payouts.segment(row).putLong(offset * Long.BYTES, payoutCents);
+        rowCountFile.putLong(0, row + 1);
+        rows = row + 1;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    // Returns how many games finished with each hand status, indexed by the status.
+    long[] outcomeCounts() {
+        return scan(() -> new long[Deck.ROYAL_FLUSH + 1], (counts, from, to) -> {
+            MappedByteBuffer status = statuses.segment(from);
+            for (long row = from; row < to; row++) {
+                counts[status.get(offset(row))]++;
+            }
+        }, HandHistory::add);
+    }
+
+    // Returns how many games held each pattern of cards, indexed by the hold mask.
+    long[] holdPatternCounts() {
+        return scan(() -> new long[1 << Deck.HAND_SIZE], (counts, from, to) -> {
+            MappedByteBuffer hold = holdMasks.segment(from);
+            for (long row = from; row < to; row++) {
+                counts[hold.get(offset(row))]++;
+            }
+        }, HandHistory::add);
+    }
+
+    // Returns the games, amount wagered, and amount paid for each denomination and bet played, ordered by denomination and then bet.
+    List<ReturnGroup> returnByDenominationAndBet() {
+        Map<Long, ReturnGroup> groups = scan(HashMap<Long, ReturnGroup>::new, (found, from, to) -> {
+            MappedByteBuffer denomination = denominations.segment(from);
+            MappedByteBuffer bet = bets.segment(from);
+            MappedByteBuffer handCount = hands.segment(from);
+            MappedByteBuffer payout = payouts.segment(from);
+            // Most games in a row share the last game's group, so it is kept rather than looked up again.
+            ReturnGroup group = null;
+            for (long row = from; row < to; row++) {
+                int offset = offset(row);
+                int cents = denomination.getInt(offset * Integer.BYTES);
+                int coins = bet.get(offset);
+                if (group == null || group.denominationCents != cents || group.bet != coins) {
+                    group = found.computeIfAbsent((long) cents << 8 | coins, key -> new ReturnGroup(cents, coins));
+                }
+                group.games++;
+                group.wageredCents += (long) cents * coins * handCount.get(offset);
+                group.paidCents += payout.getLong(offset * Long.BYTES);
+            }
+        }, (into, from) -> from.forEach((key, group) -> into.merge(key, group, ReturnGroup::add)));
+
+        List<ReturnGroup> ordered = new ArrayList<>(groups.values());
+        ordered.sort((a, b) -> a.denominationCents != b.denominationCents
+                ? Integer.compare(a.denominationCents, b.denominationCents) : Integer.compare(a.bet, b.bet));
+        return ordered;
+    }
+
+    // Forces the columns to disk and closes them.
+    @Override
+    public void close() throws IOException {
+        for (Column column : new Column[] {dealt, holdMasks, drawn, statuses, bets, hands, denominations, payouts}) {
+            column.close();
+        }
+        rowCountFile.force();
+        rowCountChannel.close();
+    }
+
+    // Scans the stored games in parallel chunks, each into its own result, and combines the results.
+    private <T> T scan(Supplier<T> supplier, ChunkScanner<T> scanner, BiConsumer<T, T> combiner) {
+        long rowCount = rows;
+        int chunks = (int) ((rowCount + CHUNK_ROWS - 1) / CHUNK_ROWS);
+        return IntStream.range(0, chunks).parallel().collect(supplier, (result, chunk) -> {
+            long from = (long) chunk * CHUNK_ROWS;
+            scanner.scan(result, from, Math.min(from + CHUNK_ROWS, rowCount));
+        }, combiner);
+    }
+
+    private static int offset(long row) {
+        return (int) (row & (SEGMENT_ROWS - 1));
+    }
+
+    private static void add(long[] into, long[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += from[i];
+        }
+    }
+
+    // Stores every game recorded in a journal file. Each journal source gets its own sink, so games of different sessions may be interleaved in the journal.
+    static void importJournal(Path journalFile, HandHistory history) throws IOException {
+        Map<Long, GameEventSink> sinks = new HashMap<>();
+        Journal.read(journalFile, (sequence, source, type, value) -> sinks.computeIfAbsent(source, key -> history.sink()).record(type, value));
+    }
+
+    // Prints the outcome frequencies, return by denomination and bet, and hold pattern usage of a store, first importing a journal into it if one is given.
+    // Usage: HandHistory directory [journal file]
+    public static void main(String[] args) throws IOException {
+        try (HandHistory history = new HandHistory(Paths.get(args[0]))) {
+            if (args.length > 1) {
+                long start = System.nanoTime();
+                long before = history.getRows();
+                importJournal(Paths.get(args[1]), history);
+                System.out.printf("Imported %,d games in %.2f s%n", history.getRows() - before, (System.nanoTime() - start) / 1e9);
+            }
+
+            long start = System.nanoTime();
+            long[] outcomes = history.outcomeCounts();
+            List<ReturnGroup> returns = history.returnByDenominationAndBet();
+            long[] holds = history.holdPatternCounts();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long games = history.getRows();
+            System.out.printf("Games: %,d (queried in %.2f s)%n%n", games, seconds);
+            System.out.println("Outcomes:");
+            for (int status = outcomes.length - 1; status >= 0; status--) {
+                System.out.printf("  %-16s %,15d %9.4f%%%n", Deck.getStatusName(status), outcomes[status], percent(outcomes[status], games));
+            }
+            System.out.println("Return by denomination and bet:");
+            for (ReturnGroup group : returns) {
+                System.out.println("  " + group);
+            }
+            System.out.println("Hold patterns:");
+            Integer[] masks = new Integer[holds.length];
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] = i;
+            }
+            Arrays.sort(masks, (a, b) -> Long.compare(holds[b], holds[a]));
+            for (int mask : masks) {
+                if (holds[mask] != 0) {
+                    System.out.printf("  %s %,15d %9.4f%%%n", holdPattern(mask), holds[mask], percent(holds[mask], games));
+                }
+            }
+        }
+    }
+
+    private static double percent(long count, long total) {
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+
+    // Writes a hold mask as five characters, H for a held card and - for a discarded one, first card first.
+    private static String holdPattern(int mask) {
+        StringBuilder pattern = new StringBuilder(Deck.HAND_SIZE);
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            pattern.append((mask & (1 << i)) != 0 ? 'H' : '-');
+        }
+        return pattern.toString();
+    }
+
+    /**
+     * This interface scans the rows from one index up to another into a query's result.
+     */
+    @FunctionalInterface
+    private interface ChunkScanner<T> {
+        void scan(T result, long from, long to);
+    }
+
+    /**
+     * This class is one memory-mapped column file, holding a field of fixed width for every row.
+     */
+    private static final class Column {
+
+        private final FileChannel channel;
+        private final int width;
+        // The mapped segments in file order. The array is replaced, never changed, so queries can read it without locking.
+        private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+        Column(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.width = width;
+        }
+
+        // Returns the mapped segment holding a row, mapping new segments as the column grows.
+        MappedByteBuffer segment(long row) {
+            int index = (int) (row >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] mapped = segments;
+            if (index < mapped.length) {
+                return mapped[index];
+            }
+            synchronized (this) {
+                mapped = segments;
+                if (index >= mapped.length) {
+                    MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+                    long segmentBytes = (long) SEGMENT_ROWS * width;
+                    try {
+                        for (int i = mapped.length; i <= index; i++) {
+                            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+                            grown[i].order(ByteOrder.LITTLE_ENDIAN);
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not extend the hand history.", e);
+                    }
+                    segments = grown;
+                    mapped = grown;
+                }
+                return mapped[index];
+            }
+        }
+
+        void close() throws IOException {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * This class totals the games played at one denomination and bet.
+     */
+    static final class ReturnGroup {
+
+        private final int denominationCents;
+        private final int bet;
+        private long games;
+        private long wageredCents;
+        private long paidCents;
+
+        ReturnGroup(int denominationCents, int bet) {
+            this.denominationCents = denominationCents;
+            this.bet = bet;
+        }
+
+        int getDenominationCents() {
+            return denominationCents;
+        }
+
+        int getBet() {
+            return bet;
+        }
+
+        long getGames() {
+            return games;
+        }
+
+        long getWageredCents() {
+            return wageredCents;
+        }
+
+        long getPaidCents() {
+            return paidCents;
+        }
+
+        // Returns the share of the wagers paid back, as a fraction.
+        double getReturn() {
+            return wageredCents == 0 ? 0 : (double) paidCents / wageredCents;
+        }
+
+        private ReturnGroup add(ReturnGroup other) {
+            games += other.games;
+            wageredCents += other.wageredCents;
+            paidCents += other.paidCents;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("$%,.2f bet %d: %,15d games  wagered $%,.2f  paid $%,.2f  return %.4f%%",
+                    denominationCents / 100.0, bet, games, wageredCents / 100.0, paidCents / 100.0, 100 * getReturn());
+        }
+    }
+
+    /**
+     * This class gathers the events of one source's games and stores each game when its payout is recorded.
+     * A multi-hand game records a DRAW and OUTCOME for every hand; only the first hand's are kept.
+     */
+    private final class Recorder implements GameEventSink {
+
+        private long wagerCents;
+        private int bet;
+        private int handCount;
+        private long dealtCards;
+        private int holdMask;
+        private long drawnCards;
+        private int status;
+        private boolean drawSeen;
+        private boolean outcomeSeen;
+
+        @Override
+        public void record(int type, long value) {
+            switch (type) {
+                case WAGER:
+                    wagerCents = value;
+                    bet = 1;
+                    handCount = 1;
+                    drawSeen = false;
+                    outcomeSeen = false;
+                    break;
+
+                case BET:
+                    bet = (int) value;
+                    break;
+
+                case HANDS:
+                    handCount = (int) value;
+                    break;
+
+                case DEAL:
+                    dealtCards = value;
+                    break;
+
+                case HOLD:
+                    holdMask = (int) value;
+                    break;
+
+                case DRAW:
+                    if (!drawSeen) {
+                        drawnCards = value;
+                        drawSeen = true;
+                    }
+                    break;
+
+                case OUTCOME:
+                    if (!outcomeSeen) {
+                        status = (int) value;
+                        outcomeSeen = true;
+                    }
+                    break;
+
+                case PAYOUT:
+                    // A payout without a draw before it is not the end of a whole game, so it is not stored.
+                    if (drawSeen && outcomeSeen) {
+                        append(dealtCards, holdMask, drawnCards, status, bet, handCount, (int) (wagerCents / ((long) bet * handCount)), value);
+                        drawSeen = false;
+                        outcomeSeen = false;
+                    }
+                    break;
+
+                default:
+                    // Seeds, and journal records that are not game events, are not stored.
+            }
+        }
+    }
+}
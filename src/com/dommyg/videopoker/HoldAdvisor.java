@@ -0,0 +1,166 @@
+package com.dommyg.videopoker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class works out hold advice on a background thread, so the thread that asks for it never waits.
+ * Each request replaces the one before it: work for an older hand is cancelled, and its advice is never delivered once a newer hand has been asked about.
+ * The expected values of recent hands are kept in a bounded cache. Hands that only differ by which suit is which share an entry,
+ * so common patterns such as a low pair are solved once per bet.
+ * When the videopoker.strategy property names a MappedStrategyTable built for the pay table and bet, advice is read from it instead and nothing is solved.
+ */
+
+final class HoldAdvisor implements AutoCloseable {
+
+    // The most hand patterns kept in the cache. The least recently used pattern is dropped first.
+    static final private int CACHE_SIZE = 4096;
+
+    // The worker thread all advice is worked out on. The fields below the executors are only used on it.
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "hold-advisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Where advice is delivered, such as Platform::runLater for the JavaFX application thread.
+    private final Executor delivery;
+    // Counts the requests. Advice is only worked out and delivered while its request is still the latest.
+    private final AtomicLong latestRequest = new AtomicLong();
+    // The latest request's work, so it can be cancelled if it has not started. Only used by the thread making requests.
+    private Future<?> pending;
+
+    // The expected values of each hand pattern and bet, in the order of the pattern's canonical hand.
+    private final Map<Long, double[]> cache = new LinkedHashMap<Long, double[]>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    // The solver for the pay table and bet last asked about. It is rebuilt only when either one changes, and the cache is cleared with a new pay table.
+    private StrategySolver solver;
+    private PayTable solverPayTable;
+    private int solverBet;
+    // The mapped table for the pay table and bet last asked about, or null if none is configured for them.
+    private MappedStrategyTable table;
+    private PayTable tablePayTable;
+    private int tableBet;
+
+    HoldAdvisor(Executor delivery) {
+        this.delivery = delivery;
+    }
+
+    // Starts solving the pay table at the bet in the background, so the first advice comes sooner.
+    void prepare(PayTable payTable, int bet) {
+        worker.execute(() -> {
+            if (tableFor(payTable, bet) == null) {
+                solverFor(payTable, bet);
+            }
+        });
+    }
+
+    // Asks for advice on the five dealt cards. The listener is called through the delivery executor, unless a newer request or a cancel comes first.
+    void request(int[] hand, PayTable payTable, int bet, Listener listener) {
+        long request = latestRequest.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        int[] cards = hand.clone();
+        pending = worker.submit(() -> {
+            if (latestRequest.get() != request) {
+                return;
+            }
+            double[] holdValues = holdValues(cards, payTable, bet);
+            int bestHold = StrategySolver.bestHold(holdValues);
+            delivery.execute(() -> {
+                if (latestRequest.get() == request) {
+                    listener.adviceReady(bestHold, holdValues);
+                }
+            });
+        });
+    }
+
+    // Drops any advice that has not been delivered yet.
+    void cancel() {
+        latestRequest.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    // Returns the expected value of each hold mask of the hand, in credits for the bet, with bits in the dealt order.
+    private double[] holdValues(int[] hand, PayTable payTable, int bet) {
+        MappedStrategyTable table = tableFor(payTable, bet);
+        if (table != null) {
+            double[] holdValues = new double[StrategySolver.HOLDS];
+            table.expectedValues(hand, holdValues);
+            return holdValues;
+        }
+
+        int[] positions = new int[Deck.HAND_SIZE];
+        long key = StrategyTable.canonicalize(hand, positions);
+        // A canonical key fills 52 bits, which leaves room for the bet below it.
+        long cacheKey = (key << 3) | bet;
+        StrategySolver solver = solverFor(payTable, bet);
+        double[] canonicalValues = cache.get(cacheKey);
+        if (canonicalValues == null) {
+            canonicalValues = new double[StrategySolver.HOLDS];
+            solver.expectedValues(StrategyTable.canonicalHand(key), canonicalValues);
+            cache.put(cacheKey, canonicalValues);
+        }
+
+        double[] holdValues = new double[StrategySolver.HOLDS];
+        for (int mask = 0; mask < StrategySolver.HOLDS; mask++) {
+            int canonicalMask = 0;
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    canonicalMask |= 1 << positions[i];
+                }
+            }
+            holdValues[mask] = canonicalValues[canonicalMask];
+        }
+        return holdValues;
+    }
+
+    private MappedStrategyTable tableFor(PayTable payTable, int bet) {
+        if (payTable != tablePayTable || bet != tableBet) {
+            table = MappedStrategyTable.configured(payTable.getPrizes(bet));
+            tablePayTable = payTable;
+            tableBet = bet;
+        }
+        return table;
+    }
+
+    private StrategySolver solverFor(PayTable payTable, int bet) {
+        if (solver == null || payTable != solverPayTable || bet != solverBet) {
+            if (payTable != solverPayTable) {
+                cache.clear();
+            }
+            // Dropping the old solver first, since each one holds about 20 MB of totals.
+            solver = null;
+            solver = new StrategySolver(payTable.getPrizes(bet));
+            solverPayTable = payTable;
+            solverBet = bet;
+        }
+        return solver;
+    }
+
+    /**
+     * This interface receives hold advice: the best hold mask and the expected value of every hold mask, in credits for the bet.
+     */
+    @FunctionalInterface
+    interface Listener {
+        void adviceReady(int bestHold, double[] holdValues);
+    }
+}
@@ -0,0 +1,11 @@
+package com.dommyg.videopoker;
+
+/**
+ * This interface chooses which cards to hold after the first cycle, for games played without a player pressing the "HOLD" buttons.
+ */
+
+interface HoldStrategy {
+
+    // Returns a hold mask for the Deck's current hand, where bit 0 holds the first card and bit 4 holds the fifth card.
+    int chooseHolds(Deck deck);
+}
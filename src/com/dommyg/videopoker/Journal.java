@@ -0,0 +1,239 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is an append-only journal of every wager, deal, hold, draw, outcome, and payout, so money state survives a crash in the middle of a hand.
+ * Records are written straight into a memory-mapped file. A background thread forces the written records to disk every few milliseconds,
+ * so many games share each disk sync instead of every game waiting for its own. A record is durable once awaitDurable returns for its sequence number.
+ * Reading the journal back with replay rebuilds each source's bankroll and any hand that was not finished.
+ */
+
+final class Journal implements AutoCloseable {
+
+    // A session was opened or restored with the bankroll in the value, in cents. Replay starts the source's balance over from this amount.
+    static final int OPEN = 100;
+    // A session was closed. Replay forgets the source.
+    static final int CLOSE = 101;
+
+    // Each record is 32 bytes: sequence (8), source (8), type (4), checksum (4), value (8).
+    static final int RECORD_BYTES = 32;
+    // The file is mapped in segments of this many bytes, adding another segment whenever the last one fills up.
+    static final private long SEGMENT_BYTES = 16L << 20;
+    // Reads and writes the sequence field of a record with memory ordering, so a record's other fields are never seen before its sequence number.
+    static final private VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    // The mapped segments in file order. The array is replaced, never changed, so appends can read it without locking.
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    // The sequence number of the next record. Sequence numbers start at 1, so a zeroed record is never mistaken for a written one.
+    private final AtomicLong nextSequence;
+    // Every record up to this sequence number has been written in full and forced to disk.
+    private volatile long durableSequence;
+    private final long flushIntervalNanos;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // Opens the journal, keeping every valid record already in it and appending after them.
+    Journal(Path file, long flushIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long[] existing = {0};
+        read(channel, (sequence, source, type, value) -> existing[0] = sequence);
+        // Records cut off before the last valid one are left as they are; replay skips them.
+        clearAfter(existing[0] * RECORD_BYTES);
+        this.nextSequence = new AtomicLong(existing[0] + 1);
+        this.durableSequence = existing[0];
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.flusher = new Thread(this::flushRecords, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Returns a sink that journals a source's game events.
+    GameEventSink sink(long source) {
+        return (type, value) -> append(source, type, value);
+    }
+
+    // Adds a record and returns its sequence number. The record is in the file right away and on disk after the next group commit.
+    long append(long source, int type, long value) {
+        long sequence = nextSequence.getAndIncrement();
+        long position = (sequence - 1) * RECORD_BYTES;
+        MappedByteBuffer segment = segment(position);
+        int offset = (int) (position % SEGMENT_BYTES);
+
+        segment.putLong(offset + 8, source);
+        segment.putInt(offset + 16, type);
+        segment.putInt(offset + 20, checksum(sequence, source, type, value));
+        segment.putLong(offset + 24, value);
+        // The sequence number is published last with a release store, so the flusher never commits a record that is only part way written.
+        SEQUENCE.setRelease(segment, offset, sequence);
+        return sequence;
+    }
+
+    // Returns the sequence number of the last record appended so far.
+    long getLastSequence() {
+        return nextSequence.get() - 1;
+    }
+
+    // Waits until the record with the given sequence number, and every record before it, has been forced to disk.
+    void awaitDurable(long sequence) {
+        while (durableSequence < sequence && running) {
+            LockSupport.parkNanos(flushIntervalNanos / 4);
+        }
+    }
+
+    // Forces everything written so far to disk and closes the file.
+    // An interrupt does not cut the wait for the last commit short; the interrupt is kept for the caller.
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(flusher);
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    // Zeroes whatever follows the last valid record, so records left beyond a cut-off write can never be read back as new ones.
+    private void clearAfter(long position) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate(64 << 10);
+        for (long size = channel.size(); position < size; position += zeros.capacity()) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), size - position));
+            channel.write(zeros, position);
+        }
+    }
+
+    // Returns the mapped segment holding the given file position, mapping new segments as the journal grows.
+    private MappedByteBuffer segment(long position) {
+        int index = (int) (position / SEGMENT_BYTES);
+        MappedByteBuffer[] mapped = segments;
+        if (index < mapped.length) {
+            return mapped[index];
+        }
+        synchronized (this) {
+            mapped = segments;
+            if (index >= mapped.length) {
+                MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+                try {
+                    for (int i = mapped.length; i <= index; i++) {
+                        grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * SEGMENT_BYTES, SEGMENT_BYTES);
+                        grown[i].order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not extend the journal.", e);
+                }
+                segments = grown;
+                mapped = grown;
+            }
+            return mapped[index];
+        }
+    }
+
+    // The group commit: forces the segments written since the last commit to disk, then marks their records durable.
+    // An appender can claim a sequence number and still be writing its record while later ones are done, so a commit only reaches up to the first
+    // record that is not written yet. The rest are committed once it is.
+    private void flushRecords() {
+        while (true) {
+            boolean stopping = !running;
+            long written = writtenSequence();
+            // The last commit forces every claimed record, since any that are still missing will not be finished after closing.
+            long forced = stopping ? nextSequence.get() - 1 : written;
+            if (forced > durableSequence) {
+                int first = (int) ((durableSequence * RECORD_BYTES) / SEGMENT_BYTES);
+                int last = (int) (((forced - 1) * RECORD_BYTES) / SEGMENT_BYTES);
+                for (int index = first; index <= last; index++) {
+                    segment(index * SEGMENT_BYTES).force();
+                }
+                durableSequence = written;
+            }
+            if (stopping) {
+                return;
+            }
+            LockSupport.parkNanos(flushIntervalNanos);
+        }
+    }
+
+    // Returns the sequence number up to which every claimed record has been written in full.
+    private long writtenSequence() {
+        long claimed = nextSequence.get() - 1;
+        long written = durableSequence;
+        while (written < claimed) {
+            long position = written * RECORD_BYTES;
+            long sequence = (long) SEQUENCE.getAcquire(segment(position), (int) (position % SEGMENT_BYTES));
+            if (sequence != written + 1) {
+                break;
+            }
+            written++;
+        }
+        return written;
+    }
+
+    // Reads every valid record of a journal file in order.
+    // A record that is missing or was cut off, such as one still being written by a slow thread when the process stopped, is skipped,
+    // so the records written after it by other threads are kept.
+    static void read(Path file, RecordReader reader) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            read(channel, reader);
+        }
+    }
+
+    private static void read(FileChannel channel, RecordReader reader) throws IOException {
+        long size = channel.size();
+        long sequence = 1;
+        for (long start = 0; start < size; start += SEGMENT_BYTES) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            for (int offset = 0; offset + RECORD_BYTES <= segment.limit(); offset += RECORD_BYTES, sequence++) {
+                long source = segment.getLong(offset + 8);
+                int type = segment.getInt(offset + 16);
+                long value = segment.getLong(offset + 24);
+                if (segment.getLong(offset) == sequence && segment.getInt(offset + 20) == checksum(sequence, source, type, value)) {
+                    reader.record(sequence, source, type, value);
+                }
+            }
+        }
+    }
+
+    // Rebuilds the state of every source in a journal file.
+    static JournalRecovery replay(Path file) throws IOException {
+        JournalRecovery recovery = new JournalRecovery();
+        read(file, recovery::apply);
+        return recovery;
+    }
+
+    private static int checksum(long sequence, long source, int type, long value) {
+        long hash = sequence * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ source) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ type) * 0x94D049BB133111EBL;
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * This interface receives the records of a journal as it is read.
+     */
+    @FunctionalInterface
+    interface RecordReader {
+        void record(long sequence, long source, int type, long value);
+    }
+}
@@ -0,0 +1,94 @@
+package com.dommyg.videopoker;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class rebuilds the bankroll and game state of every source (such as a session) from the records of a Journal.
+ * A hand whose wager was taken but whose payout was never recorded is left unfinished, with its wager pending.
+ */
+
+class JournalRecovery {
+
+    private final Map<Long, SessionState> sessions = new HashMap<>();
+    private long records;
+    // The highest source in any record, including closed ones, so new sessions can be given numbers that were never used.
+    private long highestSource;
+
+    // Applies one journal record to its source's state.
+    void apply(long sequence, long source, int type, long value) {
+        records++;
+        highestSource = Math.max(highestSource, source);
+        if (type == Journal.CLOSE) {
+            sessions.remove(source);
+            return;
+        }
+        SessionState state = sessions.computeIfAbsent(source, SessionState::new);
+        switch (type) {
+            case Journal.OPEN:
+                state.bankrollCents = value;
+                state.clearHand();
+                break;
+
+            case GameEventSink.WAGER:
+                state.bankrollCents -= value;
+                state.clearHand();
+                state.pendingWagerCents = value;
+                break;
+
+            case GameEventSink.PAYOUT:
+                state.bankrollCents += value;
+                state.clearHand();
+                break;
+        }
+    }
+
+    long getRecords() {
+        return records;
+    }
+
+    long getHighestSource() {
+        return highestSource;
+    }
+
+    Collection<SessionState> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    SessionState getSession(long source) {
+        return sessions.get(source);
+    }
+
+    /**
+     * This class is the recovered state of one source.
+     */
+    static class SessionState {
+
+        private final long source;
+        private long bankrollCents;
+        // The wager of a hand still in progress, or zero if the last hand was paid out.
+        private long pendingWagerCents;
+
+        private SessionState(long source) {
+            this.source = source;
+        }
+
+        private void clearHand() {
+            pendingWagerCents = 0;
+        }
+
+        long getSource() {
+            return source;
+        }
+
+        long getBankrollCents() {
+            return bankrollCents;
+        }
+
+        long getPendingWagerCents() {
+            return pendingWagerCents;
+        }
+    }
+}
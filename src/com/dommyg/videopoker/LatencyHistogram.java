@@ -0,0 +1,69 @@
+package com.dommyg.videopoker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts latencies in power-of-two buckets: bucket b holds the times from 2^(b-1) up to 2^b - 1 nanoseconds, and bucket 0 holds zero.
+ * Recording is one bit count and two LongAdder additions, so it never locks or creates objects once the adders have grown to the number of recording threads.
+ * Percentiles are read as the top of their bucket, which is never more than twice the true time.
+ */
+
+final class LatencyHistogram {
+
+    static final private int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        buckets[BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0))].increment();
+        totalNanos.add(nanos);
+    }
+
+    // Returns a copy of the bucket counts. Counts recorded while copying may or may not be included.
+    long[] getCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    LatencySummary summarize() {
+        long[] counts = getCounts();
+        long count = 0;
+        int highest = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts[i];
+            if (counts[i] != 0) {
+                highest = i;
+            }
+        }
+        double mean = count == 0 ? 0 : (double) totalNanos.sum() / count;
+        return new LatencySummary(count, mean, percentile(counts, count, 0.5), percentile(counts, count, 0.99),
+                percentile(counts, count, 0.999), bucketTop(highest));
+    }
+
+    // Returns the top of the bucket holding the given fraction of the counts.
+    private static long percentile(long[] counts, long count, double fraction) {
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return bucketTop(i);
+            }
+        }
+        return 0;
+    }
+
+    private static long bucketTop(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
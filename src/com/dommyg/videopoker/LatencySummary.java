@@ -0,0 +1,55 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class is a snapshot of a LatencyHistogram, in nanoseconds. JMX shows it as one composite attribute, which is why it and its getters are public.
+ */
+
+public final class LatencySummary {
+
+    private final long count;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    LatencySummary(long count, double meanNanos, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    // The top of the highest bucket anything was recorded in.
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %,d  mean %,.0f ns  p50 <%,d ns  p99 <%,d ns  p99.9 <%,d ns  max <%,d ns",
+                count, meanNanos, p50Nanos + 1, p99Nanos + 1, p999Nanos + 1, maxNanos == Long.MAX_VALUE ? maxNanos : maxNanos + 1);
+    }
+}
@@ -3,44 +3,103 @@ package com.dommyg.videopoker;
 import java.math.BigDecimal;
 
 /**
- * This class holds a deck and bank. It contains payout amounts for player wins and determines wagers and payouts based upon the player's bet and denomination selected.
+ * This class holds a deck and bank. It determines wagers and payouts based upon the player's bet and denomination selected, paying wins from a PayTable.
+ * Money is counted in whole cents; BigDecimals are only made when an amount is displayed.
  */
 
 class Machine {
 
-    // These are possible hand outcomes with prize values.
-    static final private int ROYAL_FLUSH_PRIZE = 800;
-    static final private int STRAIGHT_FLUSH_PRIZE = 50;
-    static final private int FOUR_OF_A_KIND_PRIZE = 25;
-    static final private int FULL_HOUSE_PRIZE = 9;
-    static final private int FLUSH_PRIZE = 6;
-    static final private int STRAIGHT_PRIZE = 4;
-    static final private int THREE_OF_A_KIND_PRIZE = 3;
-    static final private int TWO_PAIR_PRIZE = 2;
-    static final private int JACKS_OR_BETTER_PRIZE = 1;
-    static final private int NOTHING_PRIZE = 0;
+    // The table machines pay from unless they are given another. It is read from the bundled file once, rather than for every machine.
+    static final private PayTable STANDARD_PAY_TABLE = PayTable.standard();
 
     // The machine needs a deck to work with, a bank to hold player's money, and holds the bet amount, denomination, and win amounts of play.
     private Deck deck;
     private Bank bank;
-    private BigDecimal betDenomination;
+    private PayTable payTable;
+    private int betDenominationCents;
     private int bet;
-    private BigDecimal winAmount;
+    // The number of hands played each game, and the extra hands when there is more than one.
+    private int hands = 1;
+    private MultiHand multiHand;
+    private long winAmountCents;
+    // The win of the last game counted in credits (coins of the selected denomination) rather than money.
+    private int winCredits;
+    // Receives every wager and payout. Nothing is recorded unless a sink is set.
+    private GameEventSink events = GameEventSink.DISCARD;
+    // Running statistics of every game this machine has paid out.
+    private final SessionStats sessionStats = new SessionStats();
+    // Counts coin in and coin out and times each game from its wager to its payout. Nothing is recorded unless metrics are set.
+    private GameMetrics metrics = GameMetrics.DISCARD;
+    // The games this machine has taken wagers for, which picks the games that are timed.
+    private int gamesWagered;
+    private boolean timed;
+    // The time the machine's own work on the current timed game has taken so far: the wager and the draw. The player's time between them is not counted.
+    private long workNanos;
 
     Machine(Deck deck, Bank bank) {
+        this(deck, bank, STANDARD_PAY_TABLE);
+    }
+
+    Machine(Deck deck, Bank bank, PayTable payTable) {
         this.deck = deck;
         this.bank = bank;
-        this.betDenomination = BigDecimal.valueOf(.25);
+        this.payTable = payTable;
+        this.betDenominationCents = 25;
         this.bet = 1;
-        this.winAmount = BigDecimal.valueOf(0);
+        this.winAmountCents = 0;
+    }
+
+    void setBetDenominationCents(int betDenominationCents) {
+        this.betDenominationCents = betDenominationCents;
+    }
+
+    int getBetDenominationCents() {
+        return betDenominationCents;
+    }
+
+    // Sets the sink for this machine's wagers and payouts, and for its deck's deals, holds, draws, and outcomes.
+    void setEventSink(GameEventSink events) {
+        this.events = events;
+        deck.setEventSink(events);
+        if (multiHand != null) {
+            multiHand.setEventSink(events);
+        }
+    }
+
+    // Sets the metrics for this machine's games and for its deck.
+    void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+        deck.setMetrics(metrics);
+        if (multiHand != null) {
+            multiHand.setMetrics(metrics);
+        }
+    }
+
+    PayTable getPayTable() {
+        return payTable;
+    }
+
+    void setPayTable(PayTable payTable) {
+        this.payTable = payTable;
     }
 
-    void setBetDenomination(BigDecimal betDenomination) {
-        this.betDenomination = betDenomination;
+    // Sets the number of hands played each game, from 1 to MultiHand.MAX_HANDS. Every hand is bet the full bet.
+    void setHands(int hands) {
+        this.hands = hands;
+        this.multiHand = hands > 1 ? new MultiHand(deck, hands) : null;
+        if (multiHand != null) {
+            multiHand.setEventSink(events);
+            multiHand.setMetrics(metrics);
+        }
+    }
+
+    int getHands() {
+        return hands;
     }
 
-    BigDecimal getBetDenomination() {
-        return betDenomination;
+    // Returns the extra hands of a multi-hand game, or null when one hand is played.
+    MultiHand getMultiHand() {
+        return multiHand;
     }
 
     void setBet(int bet) {
@@ -55,77 +114,101 @@ class Machine {
         return deck;
     }
 
+    // Returns the win amount in dollars, for displaying on the UI.
     BigDecimal getWinAmount() {
-        return winAmount;
+        return BigDecimal.valueOf(winAmountCents, 2);
+    }
+
+    long getWinAmountCents() {
+        return winAmountCents;
+    }
+
+    void setWinAmountCents(long winAmountCents) {
+        this.winAmountCents = winAmountCents;
+    }
+
+    // Returns the running statistics of this machine's games. They belong to the thread playing the games.
+    SessionStats getSessionStats() {
+        return sessionStats;
+    }
+
+    int getWinCredits() {
+        return winCredits;
     }
 
-    void setWinAmount(BigDecimal winAmount) {
-        this.winAmount = winAmount;
+    // Draws the replacement cards after the holds: the second cycle of the Deck, and of every extra hand in a multi-hand game.
+    void drawHands() {
+        long start = timed ? System.nanoTime() : 0;
+        if (multiHand == null) {
+            deck.secondCycle();
+        } else {
+            multiHand.draw();
+        }
+        if (timed) {
+            workNanos += System.nanoTime() - start;
+        }
     }
 
-    // Determines which amount to payout to the player based upon their handStatus.
+    // Pays out the player's hands at the current bet, looked up in the pay table.
     void determinePayout() {
-        switch (deck.getHandStatus()) {
-            case Deck.ROYAL_FLUSH:
-                processPayout(ROYAL_FLUSH_PRIZE);
-                break;
-
-            case Deck.STRAIGHT_FLUSH:
-                processPayout(STRAIGHT_FLUSH_PRIZE);
-                break;
-
-            case Deck.FOUR_OF_A_KIND:
-                processPayout(FOUR_OF_A_KIND_PRIZE);
-                break;
-
-            case Deck.FULL_HOUSE:
-                processPayout(FULL_HOUSE_PRIZE);
-                break;
-
-            case Deck.FLUSH:
-                processPayout(FLUSH_PRIZE);
-                break;
-
-            case Deck.STRAIGHT:
-                processPayout(STRAIGHT_PRIZE);
-                break;
-
-            case Deck.THREE_OF_A_KIND:
-                processPayout(THREE_OF_A_KIND_PRIZE);
-                break;
-
-            case Deck.TWO_PAIR:
-                processPayout(TWO_PAIR_PRIZE);
-                break;
-
-            case Deck.JACKS_OR_BETTER:
-                processPayout(JACKS_OR_BETTER_PRIZE);
-                break;
-
-            case Deck.NOTHING:
-                processPayout(NOTHING_PRIZE);
-                break;
+        long start = timed ? System.nanoTime() : 0;
+        int credits = payTable.getCredits(deck.getHandPayClass(), bet);
+        int winningHands = credits > 0 ? 1 : 0;
+        if (multiHand != null) {
+            credits += multiHand.getExtraCredits(payTable, bet);
+            winningHands += multiHand.getExtraWinningHands(payTable, bet);
+        }
+        processPayout(credits);
+        boolean royal = deck.getHandStatus() == Deck.ROYAL_FLUSH || (multiHand != null && multiHand.hasRoyalFlush());
+        sessionStats.record(bet * hands, credits, hands, winningHands, royal);
+        metrics.recordPayout(winAmountCents);
+        if (timed) {
+            long payoutNanos = System.nanoTime() - start;
+            metrics.recordPayoutTime(payoutNanos);
+            // The game is only counted if its Deck timed the first cycle too, which it does for every timed game when the Deck has one Machine.
+            long dealNanos = deck.getFirstCycleNanos();
+            if (dealNanos != 0) {
+                metrics.recordGameTime(workNanos + dealNanos + payoutNanos);
+            }
         }
     }
 
     // Adds any winnings to the bankroll at the end of a game.
-    private void processPayout(int prize) {
-        bank.setBankroll(bank.getBankroll().add(calculatePayout(prize)));
-        this.winAmount = calculatePayout(prize);
+    private void processPayout(int credits) {
+        this.winCredits = credits;
+        this.winAmountCents = calculatePayout(credits);
+        bank.credit(winAmountCents);
+        events.record(GameEventSink.PAYOUT, winAmountCents);
     }
 
     // Removes the wager from the bankroll when the player starts a new game.
-    void processWager() {
-        bank.setBankroll(bank.getBankroll().subtract(calculateWager()));
+    // Returns false, and takes nothing, if the bankroll does not cover the wager.
+    boolean processWager() {
+        timed = metrics.isTimed(gamesWagered + 1);
+        long start = timed ? System.nanoTime() : 0;
+        long wager = calculateWager();
+        if (!bank.debit(wager)) {
+            timed = false;
+            return false;
+        }
+        gamesWagered++;
+        metrics.recordWager(wager);
+        events.record(GameEventSink.WAGER, wager);
+        events.record(GameEventSink.BET, bet);
+        events.record(GameEventSink.HANDS, hands);
+        if (timed) {
+            workNanos = System.nanoTime() - start;
+        }
+        return true;
     }
 
-    // Calculates the payout based upon the denomination selected by the player.
-    private BigDecimal calculatePayout(int prize) {
-        return betDenomination.multiply(BigDecimal.valueOf(bet * prize));
+    // Calculates the payout in cents based upon the denomination selected by the player.
+    private long calculatePayout(int credits) {
+        return (long) betDenominationCents * credits;
     }
 
-    // Calculates the wager based upon the denomination selected by the player.
-    private BigDecimal calculateWager() {
-        return betDenomination.multiply(BigDecimal.valueOf(bet));
+    // Calculates the wager in cents based upon the denomination selected by the player, for every hand played.
+    private long calculateWager() {
+        return (long) betDenominationCents * bet * hands;
     }
 }
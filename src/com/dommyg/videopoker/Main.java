@@ -1,5 +1,8 @@
 package com.dommyg.videopoker;
 
+import java.io.IOException;
+
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -8,16 +11,66 @@ import javafx.stage.Stage;
 
 public class Main extends Application {
 
+    // Builds the window in code with MainWindow when the videopoker.scene property is "code", and loads mainwindow.fxml otherwise.
+    static final private boolean CODE_SCENE = "code".equals(System.getProperty("videopoker.scene"));
+    // Prints the StartupTiming report once the first frame is shown when the videopoker.startupTiming property is "true".
+    static final private boolean PRINT_STARTUP_TIMING = Boolean.getBoolean("videopoker.startupTiming");
+
+    // The game's Controller, shut down when the application exits.
+    private Controller controller;
+
     @Override
     public void start(Stage primaryStage) throws Exception{
-        Parent root = FXMLLoader.load(getClass().getResource("mainwindow.fxml"));
+        StartupTiming.mark("JavaFX start");
+        Parent root;
+        MainWindow window = null;
+        if (CODE_SCENE) {
+            window = new MainWindow();
+            controller = new Controller();
+            controller.attach(window);
+            root = window.getRoot();
+        } else {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("mainwindow.fxml"));
+            root = loader.load();
+            controller = loader.getController();
+        }
+        StartupTiming.mark(CODE_SCENE ? "code scene built" : "FXML loaded");
         primaryStage.setTitle("Video Poker");
         primaryStage.setScene(new Scene(root, 900, 825));
         primaryStage.show();
+        StartupTiming.mark("shown");
+        showFirstFrame(window, controller);
+    }
+
+    // Called when the last window closes. Shuts the Controller down, so the game events still waiting in its event log are written before the JVM exits.
+    @Override
+    public void stop() throws IOException {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
+    // Waits for the first frame, then reports the startup times if asked to and builds the parts of a MainWindow that were left until the game was on screen.
+    private static void showFirstFrame(MainWindow window, Controller controller) {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                StartupTiming.mark("first frame");
+                if (PRINT_STARTUP_TIMING) {
+                    System.out.println(StartupTiming.report());
+                }
+                if (window != null) {
+                    window.buildExtras();
+                    controller.attachExtras(window);
+                }
+            }
+        }.start();
     }
 
 
     public static void main(String[] args) {
+        StartupTiming.start();
         launch(args);
     }
 }
@@ -0,0 +1,126 @@
+package com.dommyg.videopoker;
+
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.text.Font;
+
+/**
+ * This class builds the same window as mainwindow.fxml in code, so starting up skips parsing the XML and injecting the Controller through reflection.
+ * The controls keep their fx:id names, and Controller.attach takes them the way the FXMLLoader would.
+ * The advice, autoplay, and statistics rows are only built by buildExtras, which Main calls once the first frame is up, so the game itself is shown as soon as possible.
+ */
+
+final class MainWindow {
+
+    private final GridPane root = new GridPane();
+
+    final Label handStatusDisplay = new Label();
+
+    final Label card1 = cardLabel("Card 1");
+    final Label card2 = cardLabel("Card 2");
+    final Label card3 = cardLabel("Card 3");
+    final Label card4 = cardLabel("Card 4");
+    final Label card5 = cardLabel("Card 5");
+
+    final ToggleButton hold1 = holdButton();
+    final ToggleButton hold2 = holdButton();
+    final ToggleButton hold3 = holdButton();
+    final ToggleButton hold4 = holdButton();
+    final ToggleButton hold5 = holdButton();
+
+    final Label winAmountDisplay = new Label();
+    final Label betDisplay = new Label("BET 1");
+    final Label bankrollDisplay = new Label("$200.00");
+    final Button changeDenominationButton = new Button("CHANGE DENOM");
+    final Label denominationDisplay = new Label("¢25");
+    final Button changeBetButton = new Button("BET");
+    final Button dealButton = new Button("DEAL");
+
+    // The advice, autoplay, and statistics rows, which are null until buildExtras is called.
+    ToggleButton adviceToggle;
+    Label adviceDisplay;
+    ToggleButton autoplayToggle;
+    Button autoplayGamesButton;
+    Label autoplayDisplay;
+    Label statsDisplay;
+
+    MainWindow() {
+        root.setAlignment(Pos.CENTER);
+        root.setHgap(10);
+        root.setVgap(10);
+
+        root.add(box(Pos.CENTER, handStatusDisplay), 0, 0, 5, 1);
+
+        root.add(card1, 0, 1);
+        root.add(card2, 1, 1);
+        root.add(card3, 2, 1);
+        root.add(card4, 3, 1);
+        root.add(card5, 4, 1);
+
+        root.add(hold1, 0, 2);
+        root.add(hold2, 1, 2);
+        root.add(hold3, 2, 2);
+        root.add(hold4, 3, 2);
+        root.add(hold5, 4, 2);
+
+        root.add(box(Pos.CENTER_LEFT, winAmountDisplay), 0, 3, 2, 1);
+        root.add(box(Pos.CENTER, betDisplay), 2, 3);
+        root.add(box(Pos.CENTER_RIGHT, bankrollDisplay), 3, 3, 2, 1);
+
+        root.add(box(Pos.CENTER_LEFT, changeDenominationButton), 0, 4, 2, 1);
+        root.add(box(Pos.CENTER, denominationDisplay), 2, 4);
+        root.add(box(Pos.CENTER, changeBetButton), 3, 4);
+        root.add(box(Pos.CENTER_RIGHT, dealButton), 4, 4);
+    }
+
+    Parent getRoot() {
+        return root;
+    }
+
+    // Builds and adds the advice, autoplay, and statistics rows. Calling it again does nothing.
+    void buildExtras() {
+        if (adviceToggle != null) {
+            return;
+        }
+        adviceToggle = new ToggleButton("ADVICE");
+        adviceDisplay = new Label();
+        autoplayToggle = new ToggleButton("AUTO");
+        autoplayGamesButton = new Button("100 GAMES");
+        autoplayDisplay = new Label();
+        statsDisplay = new Label();
+
+        root.add(box(Pos.CENTER_LEFT, adviceToggle), 0, 5, 2, 1);
+        root.add(box(Pos.CENTER_RIGHT, adviceDisplay), 2, 5, 3, 1);
+
+        HBox autoplayBox = box(Pos.CENTER_LEFT, autoplayToggle, autoplayGamesButton);
+        autoplayBox.setSpacing(10);
+        root.add(autoplayBox, 0, 6, 2, 1);
+        root.add(box(Pos.CENTER_RIGHT, autoplayDisplay), 2, 6, 3, 1);
+
+        root.add(box(Pos.CENTER, statsDisplay), 0, 7, 5, 1);
+    }
+
+    private static Label cardLabel(String text) {
+        Label card = new Label(text);
+        card.setFont(new Font(30));
+        return card;
+    }
+
+    private static ToggleButton holdButton() {
+        ToggleButton hold = new ToggleButton("HOLD");
+        hold.setDisable(true);
+        return hold;
+    }
+
+    private static HBox box(Pos alignment, Node... children) {
+        HBox box = new HBox(children);
+        box.setAlignment(alignment);
+        return box;
+    }
+}
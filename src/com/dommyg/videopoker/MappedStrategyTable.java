@@ -0,0 +1,293 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class reads the best hold and hold expected values of any dealt hand straight out of a memory-mapped file, without loading the table into the heap.
+ * The file has one 4 byte entry for each of the 2,598,960 hands, at the hand's rank (its position among all five card sets, as StrategySolver ranks them),
+ * followed by the expected values of the 32 holds of each group of hands that only differ by which suit is which.
+ * Opening a table only maps the file, so it is ready at once, and the operating system only reads the pages of the hands actually looked up.
+ * The pages are shared by every process that maps the same file, such as the game and the headless tools on one terminal.
+ */
+
+final class MappedStrategyTable implements HoldStrategy {
+
+    // The property naming the strategy file that hold advice, autoplay, and the headless tools use when its prizes match.
+    static final String FILE_PROPERTY = "videopoker.strategy";
+
+    static final private int FILE_MAGIC = 0x5650534D;
+    static final private int FILE_VERSION = 1;
+    // The header is the magic, version, hand count, group count, and the prize of each pay class.
+    static final private int HEADER_BYTES = 4 * Integer.BYTES + PayTable.CLASSES * Integer.BYTES;
+    static final private int HANDS = (int) StrategySolver.binomial(HandEvaluator.SUITS * HandEvaluator.VALUES, Deck.HAND_SIZE);
+    static final private int GROUP_BYTES = StrategySolver.HOLDS * Float.BYTES;
+
+    // Each hand's entry packs, from the lowest bit: the best hold (5 bits) with bit 0 holding the lowest card,
+    // the permutation (7 bits) taking the sorted cards to their positions in the group's canonical hand, and the group (the remaining bits).
+    static final private int HOLD_BITS = 5;
+    static final private int PERMUTATION_BITS = 7;
+
+    // Every ordering of five positions, indexed by its rank in lexicographic order.
+    static final private byte[][] PERMUTATIONS = initializePermutations();
+
+    private static byte[][] initializePermutations() {
+        byte[][] permutations = new byte[120][];
+        for (int index = 0; index < permutations.length; index++) {
+            byte[] permutation = new byte[Deck.HAND_SIZE];
+            boolean[] used = new boolean[Deck.HAND_SIZE];
+            int rest = index;
+            int factorial = 24;
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                int skip = rest / factorial;
+                rest %= factorial;
+                if (i < Deck.HAND_SIZE - 1) {
+                    factorial /= Deck.HAND_SIZE - 1 - i;
+                }
+                int position = 0;
+                while (used[position]) {
+                    position++;
+                }
+                for (; skip > 0; skip--) {
+                    position++;
+                    while (used[position]) {
+                        position++;
+                    }
+                }
+                used[position] = true;
+                permutation[i] = (byte) position;
+            }
+            permutations[index] = permutation;
+        }
+        return permutations;
+    }
+
+    private final int[] prizes;
+    // The mapped file. Only absolute reads are made, so lookups from any number of threads do not disturb each other.
+    private final MappedByteBuffer buffer;
+    private final int groupsOffset;
+
+    private MappedStrategyTable(int[] prizes, MappedByteBuffer buffer, int groupsOffset) {
+        this.prizes = prizes;
+        this.buffer = buffer;
+        this.groupsOffset = groupsOffset;
+    }
+
+    // Maps a strategy file, returning null if the file is not a strategy file of this version.
+    static MappedStrategyTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int groups = buffer.getInt(3 * Integer.BYTES);
+            int groupsOffset = HEADER_BYTES + HANDS * Integer.BYTES;
+            if (buffer.getInt(0) != FILE_MAGIC || buffer.getInt(Integer.BYTES) != FILE_VERSION || buffer.getInt(2 * Integer.BYTES) != HANDS
+                    || groups <= 0 || size != groupsOffset + (long) groups * GROUP_BYTES) {
+                return null;
+            }
+            int[] prizes = new int[PayTable.CLASSES];
+            for (int i = 0; i < prizes.length; i++) {
+                prizes[i] = buffer.getInt(4 * Integer.BYTES + i * Integer.BYTES);
+            }
+            return new MappedStrategyTable(prizes, buffer, groupsOffset);
+        }
+    }
+
+    // Maps the strategy file, or builds it first if the file is missing or was built for different prizes.
+    static MappedStrategyTable openOrBuild(Path file, int[] prizes) throws IOException {
+        if (Files.exists(file)) {
+            MappedStrategyTable table = open(file);
+            if (table != null && Arrays.equals(table.prizes, prizes)) {
+                return table;
+            }
+        }
+        write(StrategyTable.build(new StrategySolver(prizes)), file);
+        return open(file);
+    }
+
+    // Returns the table in the file named by the videopoker.strategy property, if it was built for the prizes, or else null.
+    static MappedStrategyTable configured(int[] prizes) {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+        try {
+            MappedStrategyTable table = open(Paths.get(file));
+            return table != null && Arrays.equals(table.prizes, prizes) ? table : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the strategy file " + file + ".", e);
+        }
+    }
+
+    // Returns the configured table for the prizes as a HoldStrategy, or the SimpleHoldStrategy if there is none.
+    static HoldStrategy configuredOrSimple(int[] prizes) {
+        MappedStrategyTable table = configured(prizes);
+        return table != null ? table : new SimpleHoldStrategy();
+    }
+
+    // Writes the strategy file for a built table.
+    // The file is written beside the target and then moved over it, so a process that has the old file mapped keeps reading a whole table.
+    static void write(StrategyTable table, Path file) throws IOException {
+        int[] prizes = table.getPrizes();
+        int groupsOffset = HEADER_BYTES + HANDS * Integer.BYTES;
+        long size = groupsOffset + (long) table.size() * GROUP_BYTES;
+
+        Path target = file.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, FILE_MAGIC).putInt(Integer.BYTES, FILE_VERSION).putInt(2 * Integer.BYTES, HANDS).putInt(3 * Integer.BYTES, table.size());
+            for (int i = 0; i < prizes.length; i++) {
+                buffer.putInt(4 * Integer.BYTES + i * Integer.BYTES, prizes[i]);
+            }
+
+            // Filling in the entry of every hand, walking the hands in the same order as StrategyTable.canonicalKeys.
+            int deckSize = HandEvaluator.SUITS * HandEvaluator.VALUES;
+            IntStream.range(Deck.HAND_SIZE - 1, deckSize).parallel().forEach(c5 -> {
+                int[] hand = new int[Deck.HAND_SIZE];
+                int[] positions = new int[Deck.HAND_SIZE];
+                hand[4] = c5;
+                for (hand[3] = 3; hand[3] < c5; hand[3]++) {
+                    for (hand[2] = 2; hand[2] < hand[3]; hand[2]++) {
+                        for (hand[1] = 1; hand[1] < hand[2]; hand[1]++) {
+                            for (hand[0] = 0; hand[0] < hand[1]; hand[0]++) {
+                                int group = table.findGroup(hand, positions);
+                                int canonicalHold = table.getBestHold(group);
+                                int hold = 0;
+                                for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                                    if ((canonicalHold & (1 << positions[i])) != 0) {
+                                        hold |= 1 << i;
+                                    }
+                                }
+                                int entry = (group << (PERMUTATION_BITS + HOLD_BITS)) | (permutationIndex(positions) << HOLD_BITS) | hold;
+                                buffer.putInt(HEADER_BYTES + StrategySolver.rank(hand, Deck.HAND_SIZE) * Integer.BYTES, entry);
+                            }
+                        }
+                    }
+                }
+            });
+            for (int group = 0; group < table.size(); group++) {
+                for (int mask = 0; mask < StrategySolver.HOLDS; mask++) {
+                    buffer.putFloat(groupsOffset + group * GROUP_BYTES + mask * Float.BYTES, table.getHoldValue(group, mask));
+                }
+            }
+            buffer.force();
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    int[] getPrizes() {
+        return prizes.clone();
+    }
+
+    // Returns the best hold mask for the five dealt cards, with bits in the dealt order. Only the hand's own entry is read.
+    int bestHold(int[] hand) {
+        int[] order = StrategySolver.sortedPositions(hand);
+        int sortedHold = entry(hand, order) & ((1 << HOLD_BITS) - 1);
+        int mask = 0;
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            if ((sortedHold & (1 << i)) != 0) {
+                mask |= 1 << order[i];
+            }
+        }
+        return mask;
+    }
+
+    // Fills values with the expected payout, in the units of the prizes, of each hold mask for the five dealt cards.
+    void expectedValues(int[] hand, double[] values) {
+        int[] order = StrategySolver.sortedPositions(hand);
+        int entry = entry(hand, order);
+        byte[] permutation = PERMUTATIONS[(entry >>> HOLD_BITS) & ((1 << PERMUTATION_BITS) - 1)];
+        int base = groupsOffset + (entry >>> (PERMUTATION_BITS + HOLD_BITS)) * GROUP_BYTES;
+
+        // Where each dealt card sits in the group's canonical hand.
+        int[] positions = new int[Deck.HAND_SIZE];
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            positions[order[i]] = permutation[i];
+        }
+        for (int mask = 0; mask < StrategySolver.HOLDS; mask++) {
+            int canonicalMask = 0;
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    canonicalMask |= 1 << positions[i];
+                }
+            }
+            values[mask] = buffer.getFloat(base + canonicalMask * Float.BYTES);
+        }
+    }
+
+    @Override
+    public int chooseHolds(Deck deck) {
+        int[] hand = new int[Deck.HAND_SIZE];
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            hand[i] = deck.getHandCard(i);
+        }
+        return bestHold(hand);
+    }
+
+    // Reads the entry of the hand, given the dealt positions of its cards in ascending card order.
+    private int entry(int[] hand, int[] order) {
+        int[] sorted = new int[Deck.HAND_SIZE];
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            sorted[i] = hand[order[i]];
+            if (sorted[i] < 0 || sorted[i] >= HandEvaluator.SUITS * HandEvaluator.VALUES || (i > 0 && sorted[i] == sorted[i - 1])) {
+                throw new IllegalArgumentException("Not a five card hand: " + Arrays.toString(hand));
+            }
+        }
+        return buffer.getInt(HEADER_BYTES + StrategySolver.rank(sorted, Deck.HAND_SIZE) * Integer.BYTES);
+    }
+
+    // Returns the lexicographic rank of an ordering of five positions, its index in PERMUTATIONS.
+    private static int permutationIndex(int[] positions) {
+        int index = 0;
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            int smaller = 0;
+            for (int x = i + 1; x < Deck.HAND_SIZE; x++) {
+                if (positions[x] < positions[i]) {
+                    smaller++;
+                }
+            }
+            index = index * (Deck.HAND_SIZE - i) + smaller;
+        }
+        return index;
+    }
+
+    // Builds the strategy file for a five coin bet on the configured PayTable, then looks up a sample of hands to show the lookup time.
+    // Usage: MappedStrategyTable [file]
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "strategy.map");
+        long start = System.nanoTime();
+        MappedStrategyTable table = openOrBuild(file, PayTable.configured().getPrizes(PayTable.MAX_BET));
+        System.out.printf("Strategy file ready in %.2f s (%s, %,d bytes)%n", (System.nanoTime() - start) / 1e9, file, Files.size(file));
+
+        Deck deck = new Deck(DealRandom.splittable());
+        int lookups = 1_000_000;
+        int held = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            deck.firstCycle();
+            held += Integer.bitCount(table.chooseHolds(deck));
+            deck.finalCycle();
+        }
+        System.out.printf("%,d deals and lookups in %.2f s, %.2f cards held on average%n", lookups, (System.nanoTime() - start) / 1e9, (double) held / lookups);
+    }
+}
@@ -0,0 +1,143 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class plays the extra hands of a multi-hand game, such as Triple Play, Ten Play, or Hundred Play.
+ * The Deck deals and draws the first hand as usual. Every other hand starts with the same held cards and draws its replacements
+ * from its own copy of the cards the first deal left in the deck, so the hands are independent of each other.
+ * The extra hands are drawn from the game's seed after the first hand, so a multi-hand game can be dealt again from its seed and holds,
+ * and they are evaluated together in one batch.
+ */
+
+final class MultiHand {
+
+    // The most hands in one game (Hundred Play).
+    static final int MAX_HANDS = 100;
+
+    private final Deck deck;
+    // The number of hands in a game, counting the Deck's own hand as hand 0.
+    private final int hands;
+    // The cards left in the deck after the first deal, which every extra hand draws from. Its draws are undone after each hand.
+    private final int[] stub;
+    // The position each card of the current hand was picked from, so the stub can be put back in order for the next hand.
+    private final int[] picks = new int[Deck.HAND_SIZE];
+    // The cards held from the first deal, with Card.NO_CARD at the positions that were discarded.
+    private final int[] held = new int[Deck.HAND_SIZE];
+    // The cards, statuses, and pay classes of the extra hands. Hand h is kept at index h - 1, and its cards at (h - 1) * 5 onwards.
+    private final int[] cards;
+    private final int[] statuses;
+    private final int[] payClasses;
+    // Receives the draw and outcome of every extra hand. Nothing is recorded unless a sink is set.
+    private GameEventSink events = GameEventSink.DISCARD;
+    // Counts the outcome of every extra hand. Nothing is recorded unless metrics are set.
+    private GameMetrics metrics = GameMetrics.DISCARD;
+
+    MultiHand(Deck deck, int hands) {
+        this.deck = deck;
+        this.hands = hands;
+        this.stub = new int[HandEvaluator.SUITS * HandEvaluator.VALUES];
+        this.cards = new int[(hands - 1) * Deck.HAND_SIZE];
+        this.statuses = new int[hands - 1];
+        this.payClasses = new int[hands - 1];
+    }
+
+    void setEventSink(GameEventSink events) {
+        this.events = events;
+    }
+
+    void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    int getHands() {
+        return hands;
+    }
+
+    // Draws every hand after the holds: the Deck's own hand first, then the extra hands, which are then evaluated in one batch.
+    void draw() {
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            held[i] = deck.getHandCard(i);
+        }
+        int stubSize = deck.copyUndealt(stub);
+        deck.secondCycle();
+
+        DealRandom random = deck.getGameRandom();
+        for (int hand = 1; hand < hands; hand++) {
+            int first = (hand - 1) * Deck.HAND_SIZE;
+            int size = stubSize;
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                int card = held[i];
+                if (card == Card.NO_CARD) {
+                    // The same swap-to-the-end pick the Deck uses, so each hand is a fair draw from the whole stub.
+                    int pick = random.nextInt(size);
+                    picks[stubSize - size] = pick;
+                    size--;
+                    card = stub[pick];
+                    stub[pick] = stub[size];
+                    stub[size] = card;
+                }
+                cards[first + i] = card;
+            }
+            // Undoing the swaps, newest first, so the next hand draws from the stub in its original order.
+            while (size < stubSize) {
+                int pick = picks[stubSize - size - 1];
+                int card = stub[pick];
+                stub[pick] = stub[size];
+                stub[size] = card;
+                size++;
+            }
+        }
+
+        HandEvaluator.evaluate(cards, hands - 1, statuses);
+        for (int hand = 1; hand < hands; hand++) {
+            int first = (hand - 1) * Deck.HAND_SIZE;
+            payClasses[hand - 1] = PayTable.payClass(statuses[hand - 1], cards[first], cards[first + 1], cards[first + 2]);
+            events.record(GameEventSink.DRAW, getPackedHand(hand));
+            events.record(GameEventSink.OUTCOME, statuses[hand - 1]);
+            metrics.recordOutcome(statuses[hand - 1]);
+        }
+    }
+
+    // Returns the credits won by the extra hands, not counting the Deck's own hand.
+    int getExtraCredits(PayTable payTable, int bet) {
+        int credits = 0;
+        for (int payClass : payClasses) {
+            credits += payTable.getCredits(payClass, bet);
+        }
+        return credits;
+    }
+
+    // Returns how many of the extra hands won anything.
+    int getExtraWinningHands(PayTable payTable, int bet) {
+        int winning = 0;
+        for (int payClass : payClasses) {
+            if (payTable.getCredits(payClass, bet) > 0) {
+                winning++;
+            }
+        }
+        return winning;
+    }
+
+    // Returns true if any of the extra hands is a royal flush.
+    boolean hasRoyalFlush() {
+        for (int status : statuses) {
+            if (status == Deck.ROYAL_FLUSH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The getters below take a hand from 1 to hands - 1. Hand 0 is the Deck's own hand.
+    int getStatus(int hand) {
+        return statuses[hand - 1];
+    }
+
+    int getPayClass(int hand) {
+        return payClasses[hand - 1];
+    }
+
+    long getPackedHand(int hand) {
+        int first = (hand - 1) * Deck.HAND_SIZE;
+        return PackedHand.pack(cards[first], cards[first + 1], cards[first + 2], cards[first + 3], cards[first + 4]);
+    }
+}
@@ -0,0 +1,49 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class packs the five card indexes of a hand into one long, six bits per card, with the first card in the lowest bits.
+ * A packed hand can be logged, stored, or passed between threads without creating any objects.
+ */
+
+final class PackedHand {
+
+    static final private int BITS_PER_CARD = 6;
+    static final private long CARD_MASK = (1L << BITS_PER_CARD) - 1;
+
+    private PackedHand() {
+    }
+
+    static long pack(int card1, int card2, int card3, int card4, int card5) {
+        return card1 | (long) card2 << BITS_PER_CARD | (long) card3 << (2 * BITS_PER_CARD) | (long) card4 << (3 * BITS_PER_CARD)
+                | (long) card5 << (4 * BITS_PER_CARD);
+    }
+
+    static long pack(int[] hand) {
+        return pack(hand[0], hand[1], hand[2], hand[3], hand[4]);
+    }
+
+    // Returns the card index at a position (0-4) of the packed hand.
+    static int card(long packedHand, int position) {
+        return (int) (packedHand >>> (position * BITS_PER_CARD) & CARD_MASK);
+    }
+
+    static void unpack(long packedHand, int[] hand) {
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            hand[i] = card(packedHand, i);
+        }
+    }
+
+    static int evaluate(long packedHand) {
+        return HandEvaluator.evaluate(card(packedHand, 0), card(packedHand, 1), card(packedHand, 2), card(packedHand, 3), card(packedHand, 4));
+    }
+
+    // Writes the hand's card indexes separated by commas.
+    static void appendTo(StringBuilder text, long packedHand) {
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(card(packedHand, i));
+        }
+    }
+}
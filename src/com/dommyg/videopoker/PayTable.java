@@ -0,0 +1,242 @@
+package com.dommyg.videopoker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class holds one pay table: the credits paid for every kind of winning hand at every bet from one to five coins.
+ * Pay tables are read from a text file (see paytables.txt), so tables can be added or changed without rebuilding the game.
+ * A table is compiled into one flat array indexed by pay class and bet, so finding a payout is a single lookup.
+ */
+
+final class PayTable {
+
+    // The highest bet, in coins.
+    static final int MAX_BET = 5;
+
+    // The pay classes are the Deck's hand statuses, plus two kinds of four of a kind that some games pay more for.
+    // FOUR_OF_A_KIND is then four of a kind from fives to kings.
+    static final int FOUR_ACES = Deck.ROYAL_FLUSH + 1;
+    static final int FOUR_TWOS_TO_FOURS = Deck.ROYAL_FLUSH + 2;
+    static final int CLASSES = Deck.ROYAL_FLUSH + 3;
+
+    // The names of the pay classes in a pay table file, indexed by pay class.
+    static final private String[] CLASS_NAMES = {"NOTHING", "JACKS_OR_BETTER", "TWO_PAIR", "THREE_OF_A_KIND", "STRAIGHT",
+            "FLUSH", "FULL_HOUSE", "FOUR_OF_A_KIND", "STRAIGHT_FLUSH", "ROYAL_FLUSH", "FOUR_ACES", "FOUR_TWOS_TO_FOURS"};
+
+    // The pay classes from best to worst, for printing a table.
+    static final private int[] DISPLAY_ORDER = {Deck.ROYAL_FLUSH, Deck.STRAIGHT_FLUSH, FOUR_ACES, FOUR_TWOS_TO_FOURS, Deck.FOUR_OF_A_KIND,
+            Deck.FULL_HOUSE, Deck.FLUSH, Deck.STRAIGHT, Deck.THREE_OF_A_KIND, Deck.TWO_PAIR, Deck.JACKS_OR_BETTER};
+
+    // The pay class of a four of a kind, indexed by the value of its four cards.
+    static final private int[] QUAD_CLASSES = initializeQuadClasses();
+
+    private static int[] initializeQuadClasses() {
+        int[] classes = new int[HandEvaluator.VALUES];
+        Arrays.fill(classes, Deck.FOUR_OF_A_KIND);
+        // Values count from twos at 0, so aces are 12.
+        classes[0] = FOUR_TWOS_TO_FOURS;
+        classes[1] = FOUR_TWOS_TO_FOURS;
+        classes[2] = FOUR_TWOS_TO_FOURS;
+        classes[HandEvaluator.VALUES - 1] = FOUR_ACES;
+        return classes;
+    }
+
+    // The pay tables that come with the game, and the system properties that choose a different file or table.
+    static final private String BUNDLED_TABLES = "paytables.txt";
+    static final private String TABLES_PROPERTY = "videopoker.paytables";
+    static final private String TABLE_PROPERTY = "videopoker.paytable";
+
+    private final String name;
+    // credits[payClass * (MAX_BET + 1) + bet] is the payout in credits. Bet 0 pays nothing, so every bet can be looked up without checking it.
+    private final int[] credits;
+
+    private PayTable(String name, int[] credits) {
+        this.name = name;
+        this.credits = credits;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    // Returns the credits paid for a hand of the given pay class at the given bet.
+    int getCredits(int payClass, int bet) {
+        return credits[payClass * (MAX_BET + 1) + bet];
+    }
+
+    // Returns the credits paid for every pay class at one bet, indexed by pay class, for the StrategySolver.
+    int[] getPrizes(int bet) {
+        int[] prizes = new int[CLASSES];
+        for (int payClass = 0; payClass < CLASSES; payClass++) {
+            prizes[payClass] = getCredits(payClass, bet);
+        }
+        return prizes;
+    }
+
+    // Returns the pay class of a hand from its status and its first three cards.
+    // Only four of a kind is split further, and two of any three cards of a four of a kind share its value.
+    static int payClass(int status, int c1, int c2, int c3) {
+        if (status != Deck.FOUR_OF_A_KIND) {
+            return status;
+        }
+        int value = c1 % HandEvaluator.VALUES == c2 % HandEvaluator.VALUES ? c1 % HandEvaluator.VALUES : c3 % HandEvaluator.VALUES;
+        return QUAD_CLASSES[value];
+    }
+
+    static String getClassName(int payClass) {
+        return CLASS_NAMES[payClass];
+    }
+
+    // Returns the table the game is configured to use: the table named by the videopoker.paytable property, or else the first table,
+    // from the file named by the videopoker.paytables property, or else the tables that come with the game.
+    static PayTable configured() throws IOException {
+        String file = System.getProperty(TABLES_PROPERTY);
+        List<PayTable> tables = file != null ? load(Paths.get(file)) : bundled();
+        String tableName = System.getProperty(TABLE_PROPERTY);
+        return tableName != null ? find(tables, tableName) : tables.get(0);
+    }
+
+    // Returns the table the game uses when nothing else is configured (Jacks or Better 9/6).
+    static PayTable standard() {
+        try {
+            return bundled().get(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the bundled pay tables.", e);
+        }
+    }
+
+    // Reads the pay tables that come with the game.
+    static List<PayTable> bundled() throws IOException {
+        try (InputStream in = PayTable.class.getResourceAsStream(BUNDLED_TABLES)) {
+            if (in == null) {
+                throw new IOException("Missing " + BUNDLED_TABLES + ".");
+            }
+            return read(new InputStreamReader(in, StandardCharsets.UTF_8), BUNDLED_TABLES);
+        }
+    }
+
+    // Reads every pay table in a file.
+    static List<PayTable> load(Path file) throws IOException {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(in, file.toString());
+        }
+    }
+
+    // Returns the table with the given name.
+    static PayTable find(List<PayTable> tables, String name) {
+        for (PayTable table : tables) {
+            if (table.name.equalsIgnoreCase(name)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("No pay table named " + name + ".");
+    }
+
+    private static List<PayTable> read(Reader reader, String source) throws IOException {
+        List<PayTable> tables = new ArrayList<>();
+        BufferedReader in = new BufferedReader(reader);
+        String tableName = null;
+        int[][] pays = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[") && line.endsWith("]")) {
+                if (tableName != null) {
+                    tables.add(compile(tableName, pays));
+                }
+                tableName = line.substring(1, line.length() - 1).trim();
+                pays = new int[CLASSES][];
+                continue;
+            }
+            if (tableName == null) {
+                throw new IllegalArgumentException(source + " line " + lineNumber + ": a hand is listed before any [table name].");
+            }
+            String[] words = line.split("\\s+");
+            int payClass = Arrays.asList(CLASS_NAMES).indexOf(words[0]);
+            if (payClass <= Deck.NOTHING) {
+                throw new IllegalArgumentException(source + " line " + lineNumber + ": unknown hand " + words[0] + ".");
+            }
+            pays[payClass] = parsePays(words, source, lineNumber);
+        }
+        if (tableName != null) {
+            tables.add(compile(tableName, pays));
+        }
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException(source + " has no pay tables.");
+        }
+        return tables;
+    }
+
+    // Returns the credits of a hand's line for bets of one to five coins.
+    private static int[] parsePays(String[] words, String source, int lineNumber) {
+        int[] pays = new int[MAX_BET];
+        try {
+            if (words.length == 2) {
+                int perCoin = Integer.parseInt(words[1]);
+                for (int bet = 1; bet <= MAX_BET; bet++) {
+                    pays[bet - 1] = perCoin * bet;
+                }
+            } else if (words.length == MAX_BET + 1) {
+                for (int bet = 1; bet <= MAX_BET; bet++) {
+                    pays[bet - 1] = Integer.parseInt(words[bet]);
+                }
+            } else {
+                throw new IllegalArgumentException(source + " line " + lineNumber + ": a hand needs one pay per coin or one pay for each of five bets.");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(source + " line " + lineNumber + ": " + e.getMessage());
+        }
+        for (int pay : pays) {
+            if (pay < 0) {
+                throw new IllegalArgumentException(source + " line " + lineNumber + ": pays cannot be negative.");
+            }
+        }
+        return pays;
+    }
+
+    // Flattens a table's pays, giving the split four of a kinds the plain four of a kind's pays when they are not listed.
+    private static PayTable compile(String name, int[][] pays) {
+        if (pays[FOUR_ACES] == null) {
+            pays[FOUR_ACES] = pays[Deck.FOUR_OF_A_KIND];
+        }
+        if (pays[FOUR_TWOS_TO_FOURS] == null) {
+            pays[FOUR_TWOS_TO_FOURS] = pays[Deck.FOUR_OF_A_KIND];
+        }
+        int[] credits = new int[CLASSES * (MAX_BET + 1)];
+        for (int payClass = 0; payClass < CLASSES; payClass++) {
+            if (pays[payClass] != null) {
+                System.arraycopy(pays[payClass], 0, credits, payClass * (MAX_BET + 1) + 1, MAX_BET);
+            }
+        }
+        return new PayTable(name, credits);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder(name).append(System.lineSeparator());
+        for (int payClass : DISPLAY_ORDER) {
+            table.append(String.format("%-20s", CLASS_NAMES[payClass]));
+            for (int bet = 1; bet <= MAX_BET; bet++) {
+                table.append(String.format("%6d", getCredits(payClass, bet)));
+            }
+            table.append(System.lineSeparator());
+        }
+        return table.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.stream.IntStream;
+
+/**
+ * This class computes the exact return to player, variance, and hit frequency of optimal play on a pay table, without simulating a single game.
+ * Every deal is played with the hold of highest expected value, over every possible draw. Deals that only differ by which suit is which play the same,
+ * so each of the 134,459 groups of them is solved once and counted as many times as it has hands.
+ * StrategySolvers total the payout of every draw for every hold: one for the prizes, one for the squared prizes for the variance,
+ * and one that pays one for any win for the hit frequency. The groups are then summed in parallel on the fork-join pool.
+ * The totals are whole numbers, so the results are exact fractions, only rounded when they are turned into decimals.
+ */
+
+final class ReturnCalculator {
+
+    static final private int DECK_SIZE = HandEvaluator.SUITS * HandEvaluator.VALUES;
+    // The prize squared must still fit in an int.
+    static final private int MAX_PRIZE = 46_340;
+
+    private final PayTable payTable;
+    private final int bet;
+
+    ReturnCalculator(PayTable payTable, int bet) {
+        this.payTable = payTable;
+        this.bet = bet;
+    }
+
+    ReturnResult calculate() {
+        long start = System.nanoTime();
+        int[] prizes = payTable.getPrizes(bet);
+        int[] squares = new int[prizes.length];
+        int[] wins = new int[prizes.length];
+        for (int payClass = 0; payClass < prizes.length; payClass++) {
+            if (prizes[payClass] > MAX_PRIZE) {
+                throw new IllegalArgumentException("A prize of " + prizes[payClass] + " credits is too large to calculate the variance of.");
+            }
+            squares[payClass] = prizes[payClass] * prizes[payClass];
+            wins[payClass] = prizes[payClass] > 0 ? 1 : 0;
+        }
+        StrategySolver payoutSolver = new StrategySolver(prizes);
+        StrategySolver squareSolver = new StrategySolver(squares);
+        StrategySolver winSolver = new StrategySolver(wins);
+
+        long[] keys = StrategyTable.canonicalKeys();
+        Totals totals = IntStream.range(0, keys.length).parallel().collect(Totals::new,
+                (sums, group) -> sums.add(keys[group], payoutSolver, squareSolver, winSolver), Totals::merge);
+
+        // Every deal is equally likely, and every draw of a hold is equally likely, so each total is divided by both counts.
+        BigDecimal deals = BigDecimal.valueOf(StrategySolver.binomial(DECK_SIZE, Deck.HAND_SIZE));
+        if (totals.hands != StrategySolver.binomial(DECK_SIZE, Deck.HAND_SIZE)) {
+            throw new IllegalStateException("The hand groups cover " + totals.hands + " deals.");
+        }
+        BigDecimal coins = BigDecimal.valueOf(bet);
+        BigDecimal mean = average(totals.payouts).divide(deals.multiply(coins), MathContext.DECIMAL128);
+        BigDecimal meanSquare = average(totals.squares).divide(deals.multiply(coins).multiply(coins), MathContext.DECIMAL128);
+        BigDecimal hitFrequency = average(totals.wins).divide(deals, MathContext.DECIMAL128);
+        BigDecimal variance = meanSquare.subtract(mean.multiply(mean, MathContext.DECIMAL128), MathContext.DECIMAL128);
+        return new ReturnResult(payTable.getName(), bet, mean, variance, hitFrequency, System.nanoTime() - start);
+    }
+
+    // Adds up totals kept by the number of cards drawn, dividing each by its number of draws, exactly.
+    private static BigDecimal average(long[] totalsByDrawn) {
+        // All the draw counts divide their least common multiple, so the sum is a single exact fraction.
+        BigInteger commonDraws = BigInteger.ONE;
+        for (int drawn = 0; drawn <= Deck.HAND_SIZE; drawn++) {
+            BigInteger draws = BigInteger.valueOf(StrategySolver.binomial(DECK_SIZE - Deck.HAND_SIZE, drawn));
+            commonDraws = commonDraws.multiply(draws).divide(commonDraws.gcd(draws));
+        }
+        BigInteger numerator = BigInteger.ZERO;
+        for (int drawn = 0; drawn <= Deck.HAND_SIZE; drawn++) {
+            BigInteger draws = BigInteger.valueOf(StrategySolver.binomial(DECK_SIZE - Deck.HAND_SIZE, drawn));
+            numerator = numerator.add(BigInteger.valueOf(totalsByDrawn[drawn]).multiply(commonDraws.divide(draws)));
+        }
+        return new BigDecimal(numerator).divide(new BigDecimal(commonDraws), MathContext.DECIMAL128);
+    }
+
+    /**
+     * This class holds one worker's sums over the hand groups, kept by the number of cards drawn so every sum stays a whole number.
+     */
+    private static final class Totals {
+
+        private final long[] payouts = new long[Deck.HAND_SIZE + 1];
+        private final long[] squares = new long[Deck.HAND_SIZE + 1];
+        private final long[] wins = new long[Deck.HAND_SIZE + 1];
+        private long hands;
+        private final long[] scratch = new long[StrategySolver.HOLDS];
+        private final double[] holdValues = new double[StrategySolver.HOLDS];
+
+        // Plays one group's best hold and adds its totals, once for each deal in the group.
+        void add(long key, StrategySolver payoutSolver, StrategySolver squareSolver, StrategySolver winSolver) {
+            int[] hand = StrategyTable.canonicalHand(key);
+            int size = StrategyTable.groupSize(key);
+
+            payoutSolver.payoutTotals(hand, scratch);
+            for (int mask = 0; mask < StrategySolver.HOLDS; mask++) {
+                holdValues[mask] = (double) scratch[mask] / StrategySolver.drawCount(mask);
+            }
+            int best = StrategySolver.bestHold(holdValues);
+            int drawn = Deck.HAND_SIZE - Integer.bitCount(best);
+            payouts[drawn] += size * scratch[best];
+
+            squareSolver.payoutTotals(hand, scratch);
+            squares[drawn] += size * scratch[best];
+            winSolver.payoutTotals(hand, scratch);
+            wins[drawn] += size * scratch[best];
+            hands += size;
+        }
+
+        void merge(Totals other) {
+            for (int drawn = 0; drawn <= Deck.HAND_SIZE; drawn++) {
+                payouts[drawn] += other.payouts[drawn];
+                squares[drawn] += other.squares[drawn];
+                wins[drawn] += other.wins[drawn];
+            }
+            hands += other.hands;
+        }
+    }
+
+    // Calculates the configured PayTable at the given bet.
+    // Usage: ReturnCalculator [bet]
+    public static void main(String[] args) throws IOException {
+        int bet = args.length > 0 ? Integer.parseInt(args[0]) : PayTable.MAX_BET;
+        System.out.print(new ReturnCalculator(PayTable.configured(), bet).calculate());
+    }
+}
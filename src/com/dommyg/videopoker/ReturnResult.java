@@ -0,0 +1,59 @@
+package com.dommyg.videopoker;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * This class holds the exact return of optimal play on a pay table, as found by the ReturnCalculator.
+ * The return and variance are per coin bet, so tables can be compared at any bet.
+ */
+
+class ReturnResult {
+
+    private final String payTableName;
+    private final int bet;
+    private final BigDecimal returnToPlayer;
+    private final BigDecimal variance;
+    private final BigDecimal hitFrequency;
+    private final long elapsedNanos;
+
+    ReturnResult(String payTableName, int bet, BigDecimal returnToPlayer, BigDecimal variance, BigDecimal hitFrequency, long elapsedNanos) {
+        this.payTableName = payTableName;
+        this.bet = bet;
+        this.returnToPlayer = returnToPlayer;
+        this.variance = variance;
+        this.hitFrequency = hitFrequency;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // The share of wagered credits paid back to the player.
+    BigDecimal getReturnToPlayer() {
+        return returnToPlayer;
+    }
+
+    // The variance of one game's payout per coin bet.
+    BigDecimal getVariance() {
+        return variance;
+    }
+
+    BigDecimal getStandardDeviation() {
+        return variance.sqrt(MathContext.DECIMAL64);
+    }
+
+    // The share of games that pay anything.
+    BigDecimal getHitFrequency() {
+        return hitFrequency;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Pay table: %s, %d coin bet%n", payTableName, bet));
+        report.append(String.format("Return to player: %s%%%n", returnToPlayer.movePointRight(2).setScale(10, RoundingMode.HALF_EVEN).toPlainString()));
+        report.append(String.format("Variance: %.6f  Standard deviation: %.6f%n", variance, getStandardDeviation()));
+        report.append(String.format("Hit frequency: %.6f%%%n", hitFrequency.movePointRight(2)));
+        report.append(String.format("Calculated in %.2f s%n", elapsedNanos / 1e9));
+        return report.toString();
+    }
+}
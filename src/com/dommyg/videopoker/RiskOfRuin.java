@@ -0,0 +1,128 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class plays many independent sessions, each from the same starting bankroll, to find how likely a player is to go broke and how bankrolls move over a session.
+ * A session plays until its bankroll cannot cover the wager or it reaches the session length. The sessions are split between worker threads the same way as the Simulator's games,
+ * and each worker streams its sessions into its own RuinResult, so memory does not grow with the number of sessions.
+ */
+
+class RiskOfRuin {
+
+    private final int threads;
+    private final int bet;
+    private final int denominationCents;
+    private final long startCents;
+    private final long handsPerSession;
+    private final HoldStrategy strategy;
+    private final long seed;
+    private final PayTable payTable;
+
+    RiskOfRuin(int threads, int bet, int denominationCents, long startCents, long handsPerSession, HoldStrategy strategy, long seed, PayTable payTable) {
+        this.threads = threads;
+        this.bet = bet;
+        this.denominationCents = denominationCents;
+        this.startCents = startCents;
+        this.handsPerSession = handsPerSession;
+        this.strategy = strategy;
+        this.seed = seed;
+        this.payTable = payTable;
+    }
+
+    // Plays the given number of sessions across all worker threads and returns the merged result.
+    RuinResult run(long sessions) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            SplittableDealRandom seeded = new SplittableDealRandom(seed);
+            List<Future<RuinResult>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                // Spreading the remainder over the first workers.
+                long share = sessions / threads + (i < sessions % threads ? 1 : 0);
+                DealRandom random = seeded.split();
+                workers.add(executor.submit(() -> play(share, random)));
+            }
+
+            RuinResult total = newResult();
+            for (Future<RuinResult> worker : workers) {
+                total.merge(worker.get());
+            }
+            total.setElapsedNanos(System.nanoTime() - start);
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A risk of ruin worker failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RuinResult newResult() {
+        return new RuinResult(startCents, handsPerSession, (long) bet * denominationCents);
+    }
+
+    // Plays sessions on one worker thread, each with its own Bank and Machine on the worker's Deck.
+    private RuinResult play(long sessions, DealRandom random) {
+        Deck deck = new Deck(random);
+        RuinResult result = newResult();
+
+        for (long session = 0; session < sessions; session++) {
+            Bank bank = new Bank(startCents);
+            Machine machine = new Machine(deck, bank, payTable);
+            machine.setBet(bet);
+            machine.setBetDenominationCents(denominationCents);
+
+            long hands = 0;
+            int checkpoint = 0;
+            while (true) {
+                // Checkpoints are recorded before each hand, so those at no hands, when a session is shorter than the checkpoints, get the starting bankroll.
+                while (checkpoint < RuinResult.CHECKPOINTS && result.getCheckpointHands(checkpoint) == hands) {
+                    result.recordBankroll(checkpoint++, bank.getBankrollCents());
+                }
+                if (hands == handsPerSession || !machine.processWager()) {
+                    break;
+                }
+                deck.firstCycle();
+                deck.hold(strategy.chooseHolds(deck));
+                machine.drawHands();
+                deck.finalCycle();
+                machine.determinePayout();
+                hands++;
+            }
+            // A ruined session stays at its last bankroll for the checkpoints it did not reach.
+            while (checkpoint < RuinResult.CHECKPOINTS) {
+                result.recordBankroll(checkpoint++, bank.getBankrollCents());
+            }
+            result.recordSession(hands);
+        }
+        return result;
+    }
+
+    // Plays sessions of the configured PayTable from the Bank's default bankroll.
+    // Holds with the configured MappedStrategyTable when there is one for the bet, or else the SimpleHoldStrategy.
+    // Usage: RiskOfRuin [sessions] [hands per session] [threads] [bet] [denomination cents] [seed]
+    public static void main(String[] args) throws InterruptedException, IOException {
+        long sessions = args.length > 0 ? Long.parseLong(args[0]) : 100_000L;
+        long handsPerSession = args.length > 1 ? Long.parseLong(args[1]) : 5_000L;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int bet = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int denominationCents = args.length > 4 ? Integer.parseInt(args[4]) : 25;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : new SplittableRandom().nextLong();
+
+        PayTable payTable = PayTable.configured();
+        HoldStrategy strategy = MappedStrategyTable.configuredOrSimple(payTable.getPrizes(bet));
+        RuinResult result = new RiskOfRuin(threads, bet, denominationCents, new Bank().getBankrollCents(), handsPerSession, strategy, seed, payTable)
+                .run(sessions);
+        System.out.println("Pay table: " + payTable.getName());
+        System.out.println("Strategy: " + (strategy instanceof MappedStrategyTable ? System.getProperty(MappedStrategyTable.FILE_PROPERTY) : "simple"));
+        System.out.println("Seed: " + seed);
+        System.out.print(result);
+    }
+}
@@ -0,0 +1,133 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class holds the totals of a risk-of-ruin run in fixed-size histograms, so its size does not depend on how many sessions are played.
+ * A session is ruined once its bankroll cannot cover the wager. The hands each ruined session survived are counted in buckets,
+ * and at every checkpoint each session's bankroll is counted in buckets one wager wide; a ruined session stays at its last bankroll.
+ * Each worker fills its own result, and the results are merged at the end.
+ */
+
+class RuinResult {
+
+    // The number of buckets of hands survived, and of checkpoints in a session.
+    static final int SURVIVAL_BUCKETS = 100;
+    static final int CHECKPOINTS = 20;
+    // Bankrolls are counted up to this many times the starting bankroll. Larger bankrolls go in the last bucket.
+    static final private int BANKROLL_MULTIPLE = 8;
+
+    private final long startCents;
+    private final long handsPerSession;
+    private final long wagerCents;
+    private final long handsPerSurvivalBucket;
+
+    private long sessions;
+    private long ruined;
+    private long handsPlayed;
+    // Ruined sessions counted by the bucket of hands they survived.
+    private final long[] survived = new long[SURVIVAL_BUCKETS];
+    // Sessions counted by bankroll bucket, for each checkpoint. Checkpoint c is after (c + 1) * handsPerSession / CHECKPOINTS hands.
+    private final long[][] bankrolls;
+    private long elapsedNanos;
+
+    RuinResult(long startCents, long handsPerSession, long wagerCents) {
+        this.startCents = startCents;
+        this.handsPerSession = handsPerSession;
+        this.wagerCents = wagerCents;
+        this.handsPerSurvivalBucket = Math.max(1, (handsPerSession + SURVIVAL_BUCKETS - 1) / SURVIVAL_BUCKETS);
+        this.bankrolls = new long[CHECKPOINTS][(int) (startCents * BANKROLL_MULTIPLE / wagerCents) + 2];
+    }
+
+    // Returns the number of hands played by the end of a checkpoint.
+    long getCheckpointHands(int checkpoint) {
+        return (checkpoint + 1) * handsPerSession / CHECKPOINTS;
+    }
+
+    void recordBankroll(int checkpoint, long cents) {
+        long[] counts = bankrolls[checkpoint];
+        counts[(int) Math.min(cents / wagerCents, counts.length - 1)]++;
+    }
+
+    // Records a finished session, which is ruined if it played fewer than handsPerSession hands.
+    void recordSession(long hands) {
+        sessions++;
+        handsPlayed += hands;
+        if (hands < handsPerSession) {
+            ruined++;
+            survived[(int) (hands / handsPerSurvivalBucket)]++;
+        }
+    }
+
+    // Adds another worker's totals into this result.
+    void merge(RuinResult other) {
+        sessions += other.sessions;
+        ruined += other.ruined;
+        handsPlayed += other.handsPlayed;
+        for (int i = 0; i < SURVIVAL_BUCKETS; i++) {
+            survived[i] += other.survived[i];
+        }
+        for (int checkpoint = 0; checkpoint < CHECKPOINTS; checkpoint++) {
+            for (int i = 0; i < bankrolls[checkpoint].length; i++) {
+                bankrolls[checkpoint][i] += other.bankrolls[checkpoint][i];
+            }
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long getSessions() {
+        return sessions;
+    }
+
+    double getRuinProbability() {
+        return sessions == 0 ? 0 : (double) ruined / sessions;
+    }
+
+    // Returns the share of sessions ruined within the given number of hands, counted to the end of its survival bucket.
+    double getRuinProbabilityWithin(long hands) {
+        long count = 0;
+        for (int i = 0; i < SURVIVAL_BUCKETS && i * handsPerSurvivalBucket < hands; i++) {
+            count += survived[i];
+        }
+        return sessions == 0 ? 0 : (double) count / sessions;
+    }
+
+    // Returns the bankroll, in cents, that the given fraction of sessions were at or below at a checkpoint, rounded down to a whole wager.
+    long getBankrollPercentile(int checkpoint, double fraction) {
+        long[] counts = bankrolls[checkpoint];
+        long rank = Math.max(1, (long) Math.ceil(sessions * fraction));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i * wagerCents;
+            }
+        }
+        return (counts.length - 1) * wagerCents;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Sessions: %,d of up to %,d hands from $%,.2f, wagering $%,.2f a game, in %.2f s (%,.0f hands/sec)%n",
+                sessions, handsPerSession, startCents / 100.0, wagerCents / 100.0, elapsedNanos / 1e9, elapsedNanos == 0 ? 0 : handsPlayed * 1e9 / elapsedNanos));
+        report.append(String.format("Probability of ruin: %.4f%%%n", getRuinProbability() * 100));
+        report.append(String.format("%n%10s %12s %12s %12s %12s %12s %12s%n", "Hands", "Ruined", "5%", "25%", "50%", "75%", "95%"));
+        for (int checkpoint = 0; checkpoint < CHECKPOINTS; checkpoint++) {
+            long hands = getCheckpointHands(checkpoint);
+            report.append(String.format("%,10d %11.4f%%", hands, getRuinProbabilityWithin(hands) * 100));
+            for (double fraction : new double[] {0.05, 0.25, 0.5, 0.75, 0.95}) {
+                report.append(String.format(" %12s", dollars(getBankrollPercentile(checkpoint, fraction))));
+            }
+            report.append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    // Writes an amount of cents as dollars, marking the top bucket as open ended.
+    private String dollars(long cents) {
+        String amount = String.format("$%,.2f", cents / 100.0);
+        return cents >= (bankrolls[0].length - 1) * wagerCents ? amount + "+" : amount;
+    }
+}
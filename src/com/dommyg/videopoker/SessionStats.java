@@ -0,0 +1,117 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class keeps running statistics of a player's games in a fixed handful of fields, updated in constant time per game, so no history is kept or scanned.
+ * Each game's return is its win divided by its wager. The mean and variance of the returns are kept with Welford's method, which stays accurate over billions of games,
+ * and two sets of statistics can be merged, so simulation workers each keep their own and combine them at the end.
+ */
+
+final class SessionStats {
+
+    // The z score of a 95% confidence interval.
+    static final double Z_95 = 1.959964;
+
+    private long games;
+    // Every hand of a multi-hand game is counted here, and in handsSinceRoyal.
+    private long hands;
+    private long creditsWagered;
+    private long creditsWon;
+    // Hands that won anything. Every hand of a multi-hand game counts on its own.
+    private long winningHands;
+    private long royals;
+    private long handsSinceRoyal;
+    // Welford's running mean of the game returns, and sum of squared differences from the mean.
+    private double mean;
+    private double squaredDifferences;
+
+    // Records one finished game of the given number of hands, of which winningHands won anything. royal is true if any of its hands was a royal flush.
+    void record(int wagerCredits, int winCredits, int handCount, int winningHands, boolean royal) {
+        games++;
+        hands += handCount;
+        creditsWagered += wagerCredits;
+        creditsWon += winCredits;
+        this.winningHands += winningHands;
+        if (royal) {
+            royals++;
+            handsSinceRoyal = 0;
+        } else {
+            handsSinceRoyal += handCount;
+        }
+        double gameReturn = (double) winCredits / wagerCredits;
+        double difference = gameReturn - mean;
+        mean += difference / games;
+        squaredDifferences += difference * (gameReturn - mean);
+    }
+
+    // Adds another set of statistics into this one, as if its games were played after these (Chan's parallel form of Welford's method).
+    void merge(SessionStats other) {
+        if (other.games == 0) {
+            return;
+        }
+        long total = games + other.games;
+        double difference = other.mean - mean;
+        mean += difference * other.games / total;
+        squaredDifferences += other.squaredDifferences + difference * difference * ((double) games * other.games / total);
+        games = total;
+        hands += other.hands;
+        creditsWagered += other.creditsWagered;
+        creditsWon += other.creditsWon;
+        winningHands += other.winningHands;
+        handsSinceRoyal = other.royals > 0 ? other.handsSinceRoyal : handsSinceRoyal + other.hands;
+        royals += other.royals;
+    }
+
+    // Returns a copy that later games do not change, for handing to another thread.
+    SessionStats copy() {
+        SessionStats copy = new SessionStats();
+        copy.merge(this);
+        return copy;
+    }
+
+    long getGames() {
+        return games;
+    }
+
+    long getHands() {
+        return hands;
+    }
+
+    long getRoyals() {
+        return royals;
+    }
+
+    long getHandsSinceRoyal() {
+        return handsSinceRoyal;
+    }
+
+    // The share of wagered credits paid back to the player.
+    double getReturnToPlayer() {
+        return creditsWagered == 0 ? 0 : (double) creditsWon / creditsWagered;
+    }
+
+    // The sample variance of the game returns.
+    double getVariance() {
+        return games < 2 ? 0 : squaredDifferences / (games - 1);
+    }
+
+    double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    // The share of hands that won anything. In multi-hand play each hand is counted, as hit frequency is for a single hand.
+    double getHitFrequency() {
+        return hands == 0 ? 0 : (double) winningHands / hands;
+    }
+
+    // Returns how far the true return may be from getReturnToPlayer, for a confidence interval with the given z score.
+    // The standard error is that of the mean game return, which is the return to player when every game has the same wager.
+    double getReturnMargin(double z) {
+        return games < 2 ? 0 : z * getStandardDeviation() / Math.sqrt(games);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RTP %.2f%% ±%.2f  SD %.2f  HIT %.1f%%  SINCE ROYAL %,d", getReturnToPlayer() * 100, getReturnMargin(Z_95) * 100,
+                getStandardDeviation(), getHitFrequency() * 100, handsSinceRoyal);
+    }
+}
@@ -0,0 +1,32 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class is a basic hold strategy. It keeps any straight or better, then any cards that match another card's value, then any Jacks or higher.
+ * It is a quick baseline for simulations and is not optimal play.
+ */
+
+class SimpleHoldStrategy implements HoldStrategy {
+
+    @Override
+    public int chooseHolds(Deck deck) {
+        // Straights, flushes, and full houses use all five cards.
+        if (deck.getHandStatus() >= Deck.STRAIGHT) {
+            return 0b11111;
+        }
+
+        int matched = 0;
+        int high = 0;
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            int value = Card.numberValueOf(deck.getHandCard(i));
+            for (int x = 0; x < Deck.HAND_SIZE; x++) {
+                if (x != i && Card.numberValueOf(deck.getHandCard(x)) == value) {
+                    matched |= 1 << i;
+                }
+            }
+            if (value >= 11) {
+                high |= 1 << i;
+            }
+        }
+        return matched != 0 ? matched : high;
+    }
+}
@@ -0,0 +1,89 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class holds the totals of a simulation run. Each worker fills its own result, and the results are merged at the end.
+ */
+
+class SimulationResult {
+
+    private long hands;
+    // Credits bet and won, counted in coins of the selected denomination.
+    private long creditsWagered;
+    private long creditsWon;
+    // How many games ended with each hand status, indexed by the Deck's status codes.
+    private final long[] outcomes = new long[Deck.ROYAL_FLUSH + 1];
+    private long elapsedNanos;
+    // The running statistics of every game, merged from the workers' machines.
+    private final SessionStats sessionStats = new SessionStats();
+
+    // Records one finished game.
+    void record(int handStatus, int wager, int win) {
+        hands++;
+        creditsWagered += wager;
+        creditsWon += win;
+        outcomes[handStatus]++;
+    }
+
+    // Adds another worker's totals into this result.
+    void merge(SimulationResult other) {
+        hands += other.hands;
+        creditsWagered += other.creditsWagered;
+        creditsWon += other.creditsWon;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] += other.outcomes[i];
+        }
+        sessionStats.merge(other.sessionStats);
+    }
+
+    // Adds a worker machine's statistics into this result.
+    void mergeSessionStats(SessionStats stats) {
+        sessionStats.merge(stats);
+    }
+
+    SessionStats getSessionStats() {
+        return sessionStats;
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long getHands() {
+        return hands;
+    }
+
+    long getCreditsWagered() {
+        return creditsWagered;
+    }
+
+    long getCreditsWon() {
+        return creditsWon;
+    }
+
+    long getOutcome(int handStatus) {
+        return outcomes[handStatus];
+    }
+
+    // The share of wagered credits paid back to the player.
+    double getReturnToPlayer() {
+        return creditsWagered == 0 ? 0 : (double) creditsWon / creditsWagered;
+    }
+
+    double getHandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : hands * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Hands: %,d in %.2f s (%,.0f hands/sec)%n", hands, elapsedNanos / 1e9, getHandsPerSecond()));
+        report.append(String.format("Return to player: %.4f%% +/- %.4f (95%%)%n", getReturnToPlayer() * 100, sessionStats.getReturnMargin(SessionStats.Z_95) * 100));
+        report.append(String.format("Standard deviation per game: %.4f  Hit frequency: %.4f%%%n", sessionStats.getStandardDeviation(),
+                sessionStats.getHitFrequency() * 100));
+        for (int status = Deck.ROYAL_FLUSH; status >= Deck.NOTHING; status--) {
+            report.append(String.format("%-16s %,15d  %.6f%n", Deck.getStatusName(status), outcomes[status],
+                    hands == 0 ? 0 : (double) outcomes[status] / hands));
+        }
+        return report.toString();
+    }
+}
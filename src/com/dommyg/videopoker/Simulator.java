@@ -0,0 +1,107 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class plays games without the JavaFX UI to measure how a pay table performs.
+ * The games are split between worker threads. Each worker has its own Deck, Bank, and Machine, and the workers' results are merged at the end.
+ * Every worker's random numbers are split from one seed, so a run with the same seed, thread count, and hand count deals the same cards.
+ */
+
+class Simulator {
+
+    private final int threads;
+    private final int bet;
+    // The number of hands of each game, more than one for multi-hand play. Every hand is counted in the result.
+    private final int handsPerGame;
+    private final HoldStrategy strategy;
+    private final long seed;
+    private final PayTable payTable;
+
+    Simulator(int threads, int bet, int handsPerGame, HoldStrategy strategy, long seed, PayTable payTable) {
+        this.threads = threads;
+        this.bet = bet;
+        this.handsPerGame = handsPerGame;
+        this.strategy = strategy;
+        this.seed = seed;
+        this.payTable = payTable;
+    }
+
+    // Plays the given number of games across all worker threads and returns the merged result.
+    SimulationResult run(long hands) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            SplittableDealRandom seeded = new SplittableDealRandom(seed);
+            List<Future<SimulationResult>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                // Spreading the remainder over the first workers.
+                long share = hands / threads + (i < hands % threads ? 1 : 0);
+                DealRandom random = seeded.split();
+                workers.add(executor.submit(() -> play(share, random)));
+            }
+
+            SimulationResult total = new SimulationResult();
+            for (Future<SimulationResult> worker : workers) {
+                total.merge(worker.get());
+            }
+            total.setElapsedNanos(System.nanoTime() - start);
+            return total;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A simulation worker failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Plays games on one worker thread, in the same order the Controller performs its cycles.
+    private SimulationResult play(long hands, DealRandom random) {
+        Deck deck = new Deck(random);
+        // Workers play with a bankroll too large to run out, since the simulation measures the pay table rather than a player.
+        Machine machine = new Machine(deck, new Bank(Long.MAX_VALUE / 2), payTable);
+        machine.setBet(bet);
+        machine.setHands(handsPerGame);
+        MultiHand multiHand = machine.getMultiHand();
+        SimulationResult result = new SimulationResult();
+
+        for (long i = 0; i < hands; i++) {
+            machine.processWager();
+            deck.firstCycle();
+            deck.hold(strategy.chooseHolds(deck));
+            machine.drawHands();
+            deck.finalCycle();
+            machine.determinePayout();
+            result.record(deck.getHandStatus(), bet, payTable.getCredits(deck.getHandPayClass(), bet));
+            for (int hand = 1; hand < handsPerGame; hand++) {
+                result.record(multiHand.getStatus(hand), bet, payTable.getCredits(multiHand.getPayClass(hand), bet));
+            }
+        }
+        result.mergeSessionStats(machine.getSessionStats());
+        return result;
+    }
+
+    // Plays the configured PayTable, holding with the configured MappedStrategyTable when there is one for the bet, or else the SimpleHoldStrategy.
+    // Usage: Simulator [games] [threads] [bet] [seed] [hands per game]
+    public static void main(String[] args) throws InterruptedException, IOException {
+        long hands = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int bet = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : new SplittableRandom().nextLong();
+        int handsPerGame = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        PayTable payTable = PayTable.configured();
+        HoldStrategy strategy = MappedStrategyTable.configuredOrSimple(payTable.getPrizes(bet));
+        SimulationResult result = new Simulator(threads, bet, handsPerGame, strategy, seed, payTable).run(hands);
+        System.out.println("Pay table: " + payTable.getName());
+        System.out.println("Strategy: " + (strategy instanceof MappedStrategyTable ? System.getProperty(MappedStrategyTable.FILE_PROPERTY) : "simple"));
+        System.out.println("Seed: " + seed);
+        System.out.print(result);
+    }
+}
@@ -0,0 +1,40 @@
+package com.dommyg.videopoker;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class deals with a SplittableRandom, which is fast, does not lock, and can be seeded.
+ * It is not safe to share between threads; split gives each worker its own generator that is still determined by the original seed.
+ */
+
+class SplittableDealRandom implements DealRandom {
+
+    private final SplittableRandom random;
+
+    SplittableDealRandom() {
+        this(new SplittableRandom());
+    }
+
+    SplittableDealRandom(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private SplittableDealRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    // Returns a new generator for another thread. The sequence of generators split from a seeded generator is the same every run.
+    SplittableDealRandom split() {
+        return new SplittableDealRandom(random.split());
+    }
+}
@@ -0,0 +1,43 @@
+package com.dommyg.videopoker;
+
+/**
+ * This class times the steps of starting up, from the JVM starting to the first frame. Main prints them on one line once the first frame is up
+ * when the videopoker.startupTiming property is "true".
+ * Times are in milliseconds since the JVM process started, or since main if the operating system does not say when the process started.
+ */
+
+final class StartupTiming {
+
+    static final private int MAX_STEPS = 8;
+
+    static final private String[] steps = new String[MAX_STEPS];
+    static final private long[] times = new long[MAX_STEPS];
+    private static int stepCount;
+    private static long startMillis;
+
+    private StartupTiming() {
+    }
+
+    // Marks the first step, main being called, and finds when the process started.
+    static void start() {
+        startMillis = ProcessHandle.current().info().startInstant().map(instant -> instant.toEpochMilli()).orElse(System.currentTimeMillis());
+        mark("main");
+    }
+
+    // Marks a step as done now. Steps past MAX_STEPS are not kept.
+    static synchronized void mark(String step) {
+        if (stepCount < MAX_STEPS) {
+            steps[stepCount] = step;
+            times[stepCount] = System.currentTimeMillis();
+            stepCount++;
+        }
+    }
+
+    static synchronized String report() {
+        StringBuilder text = new StringBuilder("Startup:");
+        for (int i = 0; i < stepCount; i++) {
+            text.append(i == 0 ? " " : ", ").append(steps[i]).append(' ').append(times[i] - startMillis).append(" ms");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,215 @@
+package com.dommyg.videopoker;
+
+import java.util.stream.IntStream;
+
+/**
+ * This class computes the exact expected value of all 32 ways to hold a dealt hand.
+ * It first totals the payout of every final hand that contains each set of zero to five cards. Every hold is then a few lookups into those totals,
+ * since the final hands for a hold are the ones that contain the held cards and none of the discarded ones.
+ */
+
+final class StrategySolver {
+
+    // The number of ways to hold a five card hand, one bit per position.
+    static final int HOLDS = 1 << Deck.HAND_SIZE;
+    static final private int DECK_SIZE = HandEvaluator.SUITS * HandEvaluator.VALUES;
+
+    // BINOMIAL[n][k] is n choose k, used to give every set of k cards its own position in the payout totals.
+    static final private long[][] BINOMIAL = initializeBinomial();
+
+    private static long[][] initializeBinomial() {
+        long[][] binomial = new long[DECK_SIZE + 1][Deck.HAND_SIZE + 2];
+        for (int n = 0; n <= DECK_SIZE; n++) {
+            binomial[n][0] = 1;
+            for (int k = 1; k <= Deck.HAND_SIZE + 1 && k <= n; k++) {
+                binomial[n][k] = binomial[n - 1][k - 1] + binomial[n - 1][k];
+            }
+        }
+        return binomial;
+    }
+
+    // The PayTable pay class of every five card hand, indexed by the hand's rank.
+    // Hands are evaluated once here and shared by every solver, whatever its prizes.
+    static final private byte[] PAY_CLASSES = initializePayClasses();
+
+    private static byte[] initializePayClasses() {
+        byte[] payClasses = new byte[(int) BINOMIAL[DECK_SIZE][Deck.HAND_SIZE]];
+        // This runs on one thread: worker threads would wait on this class to finish initializing, which it cannot do until they finish.
+        // Evaluating every hand takes only a few tens of milliseconds.
+        for (int c5 = Deck.HAND_SIZE - 1; c5 < DECK_SIZE; c5++) {
+            for (int c4 = 3; c4 < c5; c4++) {
+                for (int c3 = 2; c3 < c4; c3++) {
+                    for (int c2 = 1; c2 < c3; c2++) {
+                        for (int c1 = 0; c1 < c2; c1++) {
+                            int rank = (int) (BINOMIAL[c1][1] + BINOMIAL[c2][2] + BINOMIAL[c3][3] + BINOMIAL[c4][4] + BINOMIAL[c5][5]);
+                            payClasses[rank] = (byte) PayTable.payClass(HandEvaluator.evaluate(c1, c2, c3, c4, c5), c1, c2, c3);
+                        }
+                    }
+                }
+            }
+        }
+        return payClasses;
+    }
+
+    // The prize paid for each PayTable pay class. Expected values come out in the same units, such as credits for one bet.
+    private final int[] prizes;
+    // payoutSums[k][rank] is the total payout of the final hands that contain the set of k cards with that rank.
+    private final long[][] payoutSums;
+
+    StrategySolver(int[] prizes) {
+        this.prizes = prizes.clone();
+        this.payoutSums = new long[Deck.HAND_SIZE + 1][];
+        payoutSums[Deck.HAND_SIZE] = new long[(int) BINOMIAL[DECK_SIZE][Deck.HAND_SIZE]];
+
+        // The five card totals are the payouts themselves.
+        long[] payouts = payoutSums[Deck.HAND_SIZE];
+        IntStream.range(0, payouts.length).parallel().forEach(rank -> payouts[rank] = this.prizes[PAY_CLASSES[rank]]);
+
+        // Every smaller set's total comes from the sets one card larger. A final hand containing k cards is reached through 5 - k of those larger sets.
+        for (int size = Deck.HAND_SIZE - 1; size >= 0; size--) {
+            long[] larger = payoutSums[size + 1];
+            long[] sums = new long[(int) BINOMIAL[DECK_SIZE][size]];
+            int setSize = size;
+            IntStream.range(0, sums.length).parallel().forEach(rank -> {
+                int[] cards = unrank(rank, setSize);
+                long total = 0;
+                for (int card = 0; card < DECK_SIZE; card++) {
+                    int largerRank = rankWith(cards, card);
+                    if (largerRank >= 0) {
+                        total += larger[largerRank];
+                    }
+                }
+                sums[rank] = total / (Deck.HAND_SIZE - setSize);
+            });
+            payoutSums[size] = sums;
+        }
+    }
+
+    int[] getPrizes() {
+        return prizes.clone();
+    }
+
+    // Fills holdValues with the expected payout, in the units of the prizes, of each hold mask for the five dealt cards.
+    void expectedValues(int[] hand, double[] holdValues) {
+        long[] totals = new long[HOLDS];
+        payoutTotals(hand, totals);
+        for (int mask = 0; mask < HOLDS; mask++) {
+            holdValues[mask] = (double) totals[mask] / drawCount(mask);
+        }
+    }
+
+    // Fills totals with the exact total payout of every draw for each hold mask of the five dealt cards.
+    // Dividing a total by drawCount(mask) gives the hold's expected value.
+    void payoutTotals(int[] hand, long[] totals) {
+        // Positions of the hand sorted by card index, since a set's rank is computed from its cards in ascending order.
+        int[] order = sortedPositions(hand);
+
+        // Total payout of the final hands that contain each set of the dealt cards.
+        for (int mask = 0; mask < HOLDS; mask++) {
+            long rank = 0;
+            int size = 0;
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                if ((mask & (1 << order[i])) != 0) {
+                    rank += BINOMIAL[hand[order[i]]][++size];
+                }
+            }
+            totals[mask] = payoutSums[size][(int) rank];
+        }
+
+        // Removing the final hands that also contain a discarded card, leaving only the hands reachable from each hold.
+        for (int bit = 1; bit < HOLDS; bit <<= 1) {
+            for (int mask = 0; mask < HOLDS; mask++) {
+                if ((mask & bit) == 0) {
+                    totals[mask] -= totals[mask | bit];
+                }
+            }
+        }
+    }
+
+    // Returns the number of different draws for a hold mask: the ways to pick the discarded cards' replacements from the 47 left.
+    static long drawCount(int mask) {
+        return BINOMIAL[DECK_SIZE - Deck.HAND_SIZE][Deck.HAND_SIZE - Integer.bitCount(mask)];
+    }
+
+    // Returns the hold mask with the highest expected value for the five dealt cards.
+    int bestHold(int[] hand) {
+        double[] holdValues = new double[HOLDS];
+        expectedValues(hand, holdValues);
+        return bestHold(holdValues);
+    }
+
+    static int bestHold(double[] holdValues) {
+        int best = 0;
+        for (int mask = 1; mask < HOLDS; mask++) {
+            if (holdValues[mask] > holdValues[best]) {
+                best = mask;
+            }
+        }
+        return best;
+    }
+
+    // Returns n choose k for a deck-sized n.
+    static long binomial(int n, int k) {
+        return BINOMIAL[n][k];
+    }
+
+    // Returns the rank of a set of cards given in ascending order, which is its position among all sets of the same size.
+    static int rank(int[] sortedCards, int size) {
+        long rank = 0;
+        for (int i = 0; i < size; i++) {
+            rank += BINOMIAL[sortedCards[i]][i + 1];
+        }
+        return (int) rank;
+    }
+
+    // Returns the positions (0-4) of the hand sorted by card index.
+    static int[] sortedPositions(int[] hand) {
+        int[] order = {0, 1, 2, 3, 4};
+        for (int i = 1; i < Deck.HAND_SIZE; i++) {
+            int position = order[i];
+            int x = i - 1;
+            while (x >= 0 && hand[order[x]] > hand[position]) {
+                order[x + 1] = order[x];
+                x--;
+            }
+            order[x + 1] = position;
+        }
+        return order;
+    }
+
+    // Returns the cards, in ascending order, of the set of the given size and rank.
+    private static int[] unrank(long rank, int size) {
+        int[] cards = new int[size];
+        int card = DECK_SIZE - 1;
+        for (int i = size; i > 0; i--) {
+            while (BINOMIAL[card][i] > rank) {
+                card--;
+            }
+            cards[i - 1] = card;
+            rank -= BINOMIAL[card][i];
+            card--;
+        }
+        return cards;
+    }
+
+    // Returns the rank of the sorted cards plus one extra card, or -1 if the card is already in the set.
+    private static int rankWith(int[] cards, int extra) {
+        long rank = 0;
+        int position = 1;
+        boolean added = false;
+        for (int card : cards) {
+            if (card == extra) {
+                return -1;
+            }
+            if (!added && extra < card) {
+                rank += BINOMIAL[extra][position++];
+                added = true;
+            }
+            rank += BINOMIAL[card][position++];
+        }
+        if (!added) {
+            rank += BINOMIAL[extra][position];
+        }
+        return (int) rank;
+    }
+}
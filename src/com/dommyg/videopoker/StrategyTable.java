@@ -0,0 +1,296 @@
+package com.dommyg.videopoker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class holds the expected value of every hold for every dealt hand, so hold advice is a lookup instead of a calculation.
+ * Hands that only differ by which suit is which play the same, so the table keeps one entry per group of those hands (134,459 instead of 2,598,960).
+ * The table is built in parallel with the StrategySolver and cached in a file for the pay table it was built with.
+ */
+
+final class StrategyTable implements HoldStrategy {
+
+    static final private int FILE_MAGIC = 0x56505354;
+    static final private int FILE_VERSION = 2;
+    static final private int HEADER_BYTES = 3 * Integer.BYTES + PayTable.CLASSES * Integer.BYTES;
+
+    // The prize of each PayTable pay class the table was built with.
+    private final int[] prizes;
+    // The canonical key of every group of hands, sorted so a hand's group is found with a binary search.
+    private final long[] keys;
+    // The best hold of each group, with bits in the order of the group's canonical hand.
+    private final byte[] bestHolds;
+    // The expected value of all 32 holds of each group, 32 entries per group.
+    private final float[] holdValues;
+
+    private StrategyTable(int[] prizes, long[] keys, byte[] bestHolds, float[] holdValues) {
+        this.prizes = prizes;
+        this.keys = keys;
+        this.bestHolds = bestHolds;
+        this.holdValues = holdValues;
+    }
+
+    // Builds the table for the solver's pay table, solving every group on all cores.
+    static StrategyTable build(StrategySolver solver) {
+        long[] keys = canonicalKeys();
+        byte[] bestHolds = new byte[keys.length];
+        float[] holdValues = new float[keys.length * StrategySolver.HOLDS];
+
+        IntStream.range(0, keys.length).parallel().forEach(group -> {
+            double[] values = new double[StrategySolver.HOLDS];
+            solver.expectedValues(canonicalHand(keys[group]), values);
+            bestHolds[group] = (byte) StrategySolver.bestHold(values);
+            for (int mask = 0; mask < StrategySolver.HOLDS; mask++) {
+                holdValues[group * StrategySolver.HOLDS + mask] = (float) values[mask];
+            }
+        });
+        return new StrategyTable(solver.getPrizes(), keys, bestHolds, holdValues);
+    }
+
+    // Loads the table cached in the file, or builds and caches it if the file is missing or was built for different prizes.
+    static StrategyTable loadOrBuild(Path file, int[] prizes) throws IOException {
+        if (Files.exists(file)) {
+            StrategyTable table = load(file);
+            if (table != null && Arrays.equals(table.prizes, prizes)) {
+                return table;
+            }
+        }
+        StrategyTable table = build(new StrategySolver(prizes));
+        table.save(file);
+        return table;
+    }
+
+    // Reads a cached table, returning null if the file is not a table of this version.
+    static StrategyTable load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+                return null;
+            }
+            int count = buffer.getInt();
+            int[] prizes = new int[PayTable.CLASSES];
+            buffer.asIntBuffer().get(prizes);
+            buffer.position(HEADER_BYTES);
+
+            long[] keys = new long[count];
+            byte[] bestHolds = new byte[count];
+            float[] holdValues = new float[count * StrategySolver.HOLDS];
+            buffer.asLongBuffer().get(keys);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.get(bestHolds);
+            buffer.asFloatBuffer().get(holdValues);
+            return new StrategyTable(prizes, keys, bestHolds, holdValues);
+        }
+    }
+
+    void save(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + keys.length * (Long.BYTES + 1 + StrategySolver.HOLDS * Float.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(keys.length);
+        for (int prize : prizes) {
+            buffer.putInt(prize);
+        }
+        for (long key : keys) {
+            buffer.putLong(key);
+        }
+        buffer.put(bestHolds);
+        for (float value : holdValues) {
+            buffer.putFloat(value);
+        }
+        buffer.flip();
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    int[] getPrizes() {
+        return prizes.clone();
+    }
+
+    // Returns the best hold of a group, with bits in the order of the group's canonical hand.
+    int getBestHold(int group) {
+        return bestHolds[group];
+    }
+
+    // Returns the expected value of a hold of a group, with bits in the order of the group's canonical hand.
+    float getHoldValue(int group, int canonicalMask) {
+        return holdValues[group * StrategySolver.HOLDS + canonicalMask];
+    }
+
+    // Returns the best hold mask for the five dealt cards, with bits in the dealt order.
+    int bestHold(int[] hand) {
+        int[] positions = new int[Deck.HAND_SIZE];
+        int group = findGroup(hand, positions);
+        int canonicalMask = bestHolds[group];
+        int mask = 0;
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            if ((canonicalMask & (1 << positions[i])) != 0) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    // Fills values with the expected payout, in the units of the prizes, of each hold mask for the five dealt cards.
+    void expectedValues(int[] hand, double[] values) {
+        int[] positions = new int[Deck.HAND_SIZE];
+        int base = findGroup(hand, positions) * StrategySolver.HOLDS;
+        for (int mask = 0; mask < StrategySolver.HOLDS; mask++) {
+            int canonicalMask = 0;
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    canonicalMask |= 1 << positions[i];
+                }
+            }
+            values[mask] = holdValues[base + canonicalMask];
+        }
+    }
+
+    @Override
+    public int chooseHolds(Deck deck) {
+        int[] hand = new int[Deck.HAND_SIZE];
+        for (int i = 0; i < Deck.HAND_SIZE; i++) {
+            hand[i] = deck.getHandCard(i);
+        }
+        return bestHold(hand);
+    }
+
+    // Finds the hand's group and fills positions with where each dealt card sits in the group's canonical hand.
+    int findGroup(int[] hand, int[] positions) {
+        int group = Arrays.binarySearch(keys, canonicalize(hand, positions));
+        if (group < 0) {
+            throw new IllegalArgumentException("Not a five card hand: " + Arrays.toString(hand));
+        }
+        return group;
+    }
+
+    // Returns the canonical key of the hand's group: the hand's values for each suit, with the suits put in descending order of those values.
+    // If positions is given, it is filled with the position each dealt card has in the canonical hand.
+    static long canonicalize(int[] hand, int[] positions) {
+        int[] suitMasks = new int[HandEvaluator.SUITS];
+        for (int card : hand) {
+            suitMasks[Card.suitOf(card)] |= 1 << (card % HandEvaluator.VALUES);
+        }
+
+        // Sorting the suits by their values. Suits with the same values can be swapped freely, so ties need no extra ordering.
+        int[] suits = {0, 1, 2, 3};
+        for (int i = 1; i < HandEvaluator.SUITS; i++) {
+            int suit = suits[i];
+            int x = i - 1;
+            while (x >= 0 && suitMasks[suits[x]] < suitMasks[suit]) {
+                suits[x + 1] = suits[x];
+                x--;
+            }
+            suits[x + 1] = suit;
+        }
+
+        long key = 0;
+        int[] canonicalSuit = new int[HandEvaluator.SUITS];
+        for (int i = 0; i < HandEvaluator.SUITS; i++) {
+            key = (key << HandEvaluator.VALUES) | suitMasks[suits[i]];
+            canonicalSuit[suits[i]] = i;
+        }
+
+        if (positions != null) {
+            int[] canonicalCards = new int[Deck.HAND_SIZE];
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                canonicalCards[i] = canonicalSuit[Card.suitOf(hand[i])] * HandEvaluator.VALUES + hand[i] % HandEvaluator.VALUES;
+            }
+            for (int i = 0; i < Deck.HAND_SIZE; i++) {
+                int position = 0;
+                for (int x = 0; x < Deck.HAND_SIZE; x++) {
+                    if (canonicalCards[x] < canonicalCards[i]) {
+                        position++;
+                    }
+                }
+                positions[i] = position;
+            }
+        }
+        return key;
+    }
+
+    // Returns the canonical hand of a group, in ascending card order.
+    static int[] canonicalHand(long key) {
+        int[] hand = new int[Deck.HAND_SIZE];
+        int count = 0;
+        for (int suit = 0; suit < HandEvaluator.SUITS; suit++) {
+            int mask = (int) (key >>> ((HandEvaluator.SUITS - 1 - suit) * HandEvaluator.VALUES)) & ((1 << HandEvaluator.VALUES) - 1);
+            for (int value = 0; value < HandEvaluator.VALUES; value++) {
+                if ((mask & (1 << value)) != 0) {
+                    hand[count++] = suit * HandEvaluator.VALUES + value;
+                }
+            }
+        }
+        return hand;
+    }
+
+    // Returns the number of dealt hands in a group: the 24 ways to assign the four suits, less the ones that only swap suits holding the same values.
+    static int groupSize(long key) {
+        int size = 24;
+        int run = 1;
+        for (int suit = 1; suit < HandEvaluator.SUITS; suit++) {
+            long mask = (key >>> ((HandEvaluator.SUITS - 1 - suit) * HandEvaluator.VALUES)) & ((1 << HandEvaluator.VALUES) - 1);
+            long previous = (key >>> ((HandEvaluator.SUITS - suit) * HandEvaluator.VALUES)) & ((1 << HandEvaluator.VALUES) - 1);
+            run = mask == previous ? run + 1 : 1;
+            size /= run;
+        }
+        return size;
+    }
+
+    // Returns the sorted canonical keys of all groups, found by canonicalizing all 2,598,960 hands.
+    static long[] canonicalKeys() {
+        int deckSize = HandEvaluator.SUITS * HandEvaluator.VALUES;
+        long[] all = new long[(int) StrategySolver.binomial(deckSize, Deck.HAND_SIZE)];
+        IntStream.range(Deck.HAND_SIZE - 1, deckSize).parallel().forEach(c5 -> {
+            int[] hand = new int[Deck.HAND_SIZE];
+            hand[4] = c5;
+            for (hand[3] = 3; hand[3] < c5; hand[3]++) {
+                for (hand[2] = 2; hand[2] < hand[3]; hand[2]++) {
+                    for (hand[1] = 1; hand[1] < hand[2]; hand[1]++) {
+                        for (hand[0] = 0; hand[0] < hand[1]; hand[0]++) {
+                            all[StrategySolver.rank(hand, Deck.HAND_SIZE)] = canonicalize(hand, null);
+                        }
+                    }
+                }
+            }
+        });
+        Arrays.parallelSort(all);
+
+        int count = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[count++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, count);
+    }
+
+    // Builds the table for a five coin bet on the configured PayTable.
+    // Usage: StrategyTable [file]
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "strategy.bin");
+        long start = System.nanoTime();
+        StrategyTable table = loadOrBuild(file, PayTable.configured().getPrizes(PayTable.MAX_BET));
+        System.out.printf("%,d hand groups ready in %.2f s (%s)%n", table.size(), (System.nanoTime() - start) / 1e9, file);
+    }
+}
@@ -0,0 +1,20 @@
+package com.dommyg.videopoker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class deals with the ThreadLocalRandom of the current thread. It cannot be seeded, but it can be shared by decks on any thread.
+ */
+
+class ThreadLocalDealRandom implements DealRandom {
+
+    @Override
+    public int nextInt(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+}
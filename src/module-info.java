@@ -1,6 +1,7 @@
 module VideoPokerFX {
     requires javafx.fxml;
     requires javafx.controls;
+    requires jdk.management;
 
     opens com.dommyg.videopoker;
 }
\ No newline at end of file